@@ -15,26 +15,46 @@
  */
 package com.grayfox.server.config;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
 import javax.sql.DataSource;
 
 import com.foursquare4j.FoursquareApi;
 
+import com.grayfox.server.util.MonitoredThreadPoolExecutor;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jmx.support.RegistrationPolicy;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @Configuration
 @PropertySource("/WEB-INF/resources/config.properties")
-@Import({MainConfig.DataConfig.class, MainConfig.BeanConfig.class})
+@Import({MainConfig.DataConfig.class, MainConfig.ExecutorConfig.class, MainConfig.BeanConfig.class})
 public class MainConfig {
 
     @Bean
@@ -44,13 +64,27 @@ public class MainConfig {
 
     @EnableAsync
     @Configuration
+    @EnableScheduling
+    @EnableMBeanExport(registration = RegistrationPolicy.IGNORE_EXISTING)
     @EnableTransactionManagement
     @ComponentScan(basePackages = { 
             "com.grayfox.server.dao.*",
             "com.grayfox.server.oauth.*",
             "com.grayfox.server.service",
             "com.grayfox.server.ws.*"})
-    public static class BeanConfig {
+    public static class BeanConfig implements AsyncConfigurer {
+
+        @Inject @Named("asyncExecutor") private Executor asyncExecutor;
+
+        @Override
+        public Executor getAsyncExecutor() {
+            return asyncExecutor;
+        }
+
+        @Override
+        public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+            return new SimpleAsyncUncaughtExceptionHandler();
+        }
 
         @Bean
         public FoursquareApi foursquareApi(
@@ -63,17 +97,41 @@ public class MainConfig {
     @Configuration
     public static class DataConfig {
 
-        @Bean
+        @Bean(destroyMethod = "close")
         public DataSource dataSource(
                 @Value("${jdbc.driver.class}") String driverClass,
                 @Value("${jdbc.url}") String url,
                 @Value("${jdbc.user}") String user,
-                @Value("${jdbc.password}") String password) {
-            DriverManagerDataSource dataSource = new DriverManagerDataSource();
+                @Value("${jdbc.password}") String password,
+                @Value("${jdbc.pool.initial.size}") int initialSize,
+                @Value("${jdbc.pool.min.idle}") int minIdle,
+                @Value("${jdbc.pool.max.idle}") int maxIdle,
+                @Value("${jdbc.pool.max.total}") int maxTotal,
+                @Value("${jdbc.pool.max.wait.millis}") long maxWaitMillis,
+                @Value("${jdbc.pool.validation.query}") String validationQuery,
+                @Value("${jdbc.pool.eviction.run.millis}") long evictionRunMillis,
+                @Value("${jdbc.pool.min.evictable.idle.millis}") long minEvictableIdleMillis,
+                @Value("${jdbc.pool.statements.enabled}") boolean statementsPoolEnabled,
+                @Value("${jdbc.pool.statements.max.open}") int maxOpenStatements,
+                @Value("${jdbc.pool.jmx.name}") String jmxName) {
+            BasicDataSource dataSource = new BasicDataSource();
             dataSource.setDriverClassName(driverClass);
             dataSource.setUrl(url);
             dataSource.setUsername(user);
             dataSource.setPassword(password);
+            dataSource.setInitialSize(initialSize);
+            dataSource.setMinIdle(minIdle);
+            dataSource.setMaxIdle(maxIdle);
+            dataSource.setMaxTotal(maxTotal);
+            dataSource.setMaxWaitMillis(maxWaitMillis);
+            dataSource.setValidationQuery(validationQuery);
+            dataSource.setTestOnBorrow(true);
+            dataSource.setTestWhileIdle(true);
+            dataSource.setTimeBetweenEvictionRunsMillis(evictionRunMillis);
+            dataSource.setMinEvictableIdleTimeMillis(minEvictableIdleMillis);
+            dataSource.setPoolPreparedStatements(statementsPoolEnabled);
+            dataSource.setMaxOpenPreparedStatements(maxOpenStatements);
+            dataSource.setJmxName(jmxName);
             return dataSource;
         }
 
@@ -82,4 +140,96 @@ public class MainConfig {
             return new DataSourceTransactionManager(dataSource);
         }
     }
+
+    @Configuration
+    public static class ExecutorConfig {
+
+        @Bean(destroyMethod = "drain")
+        public MonitoredThreadPoolExecutor asyncExecutor(
+                @Value("${async.pool.size}") int poolSize,
+                @Value("${async.queue.capacity}") int queueCapacity,
+                @Value("${async.defer.millis}") long deferMillis,
+                @Value("${async.defer.max}") int maxDeferred,
+                @Value("${async.drain.timeout.millis}") long drainTimeoutMillis) {
+            return new MonitoredThreadPoolExecutor("async", poolSize, queueCapacity, deferMillis, maxDeferred, drainTimeoutMillis);
+        }
+
+        @Bean
+        public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduler.pool.size}") int poolSize) {
+            ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+            taskScheduler.setPoolSize(poolSize);
+            taskScheduler.setThreadNamePrefix("scheduler-");
+            return taskScheduler;
+        }
+
+        @Bean
+        public ExecutorService recommendationExecutor(
+                @Value("${recommendation.executor.pool.size}") int poolSize,
+                @Value("${recommendation.executor.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("recommendation-"), 
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Bean
+        public ExecutorService foursquareRefreshExecutor(
+                @Value("${foursquare.cache.refresh.pool.size}") int poolSize,
+                @Value("${foursquare.cache.refresh.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("foursquare-refresh-"), 
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Bean
+        public ExecutorService foursquareLikesExecutor(
+                @Value("${foursquare.likes.parallelism}") int parallelism,
+                @Value("${foursquare.likes.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("foursquare-likes-"), 
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+
+        @Bean
+        public ExecutorService foursquareIoExecutor(
+                @Value("${foursquare.io.pool.size}") int poolSize,
+                @Value("${foursquare.io.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("foursquare-io-"), 
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Bean
+        public ExecutorService foursquarePrefetchExecutor(
+                @Value("${foursquare.route.prefetch.pool.size}") int poolSize,
+                @Value("${foursquare.route.prefetch.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("foursquare-prefetch-"), 
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Bean
+        public ExecutorService profileJobExecutor(
+                @Value("${profile.job.pool.size}") int poolSize,
+                @Value("${profile.job.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("profile-job-"), 
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Bean
+        public ExecutorService poiGraphExecutor(
+                @Value("${poi.next.writer.pool.size}") int poolSize,
+                @Value("${poi.next.writer.queue.capacity}") int queueCapacity) {
+            return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, 
+                    new ArrayBlockingQueue<>(queueCapacity), 
+                    new CustomizableThreadFactory("poi-graph-"), 
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
 }
\ No newline at end of file
@@ -15,6 +15,8 @@
  */
 package com.grayfox.server.config;
 
+import java.util.Arrays;
+
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
@@ -22,8 +24,18 @@ import javax.ws.rs.ext.Provider;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.Location;
+import com.grayfox.server.domain.Poi;
+import com.grayfox.server.domain.Recommendation;
+import com.grayfox.server.domain.User;
+import com.grayfox.server.ws.rest.response.AccessTokenResponse;
+import com.grayfox.server.ws.rest.response.ApiResponse;
+import com.grayfox.server.ws.rest.response.UpdateResponse;
+
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ServerProperties;
 
 @ApplicationPath("/api/*")
 public class WebServiceConfig extends ResourceConfig {
@@ -32,15 +44,24 @@ public class WebServiceConfig extends ResourceConfig {
         packages("com.grayfox.server.ws.rest");
         register(JacksonFeature.class);
         register(ObjectMapperProvider.class);
+        property(ServerProperties.OUTBOUND_CONTENT_LENGTH_BUFFER, 0);
     }
 
     @Provider
     private static class ObjectMapperProvider implements ContextResolver<ObjectMapper> {
 
+        private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
         @Override
         public ObjectMapper getContext(Class<?> type) {
+            return OBJECT_MAPPER;
+        }
+
+        private static ObjectMapper createObjectMapper() {
             ObjectMapper objectMapper = new ObjectMapper();
             objectMapper.setSerializationInclusion(Include.NON_NULL);
+            Arrays.asList(ApiResponse.class, UpdateResponse.class, AccessTokenResponse.class, Poi.class, Category.class, Location.class, Recommendation.class, User.class)
+                .forEach(objectMapper::canSerialize);
             return objectMapper;
         }
     }
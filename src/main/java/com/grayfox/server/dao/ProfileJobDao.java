@@ -0,0 +1,29 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao;
+
+import java.util.List;
+
+import com.grayfox.server.domain.ProfileJob;
+
+public interface ProfileJobDao {
+
+    List<ProfileJob> claim(int limit, long leaseMillis);
+    void save(ProfileJob job);
+    boolean checkpoint(ProfileJob job, long leaseMillis);
+    void release(ProfileJob job, long delayMillis);
+    void delete(ProfileJob job);
+}
\ No newline at end of file
@@ -18,12 +18,13 @@ package com.grayfox.server.dao;
 import java.util.List;
 import java.util.Locale;
 
+import com.grayfox.server.domain.Cursor;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Recommendation;
 
 public interface RecommendationDao {
 
-    List<Recommendation> findNearestWithHighRating(Location location, Integer radius, Locale locale);
-    List<Recommendation> findNearestByCategoriesLiked(String accessToken, Location location, Integer radius, Locale locale);
-    List<Recommendation> findNearestByCategoriesLikedByFriends(String accessToken, Location location, Integer radius, Locale locale);
+    List<Recommendation> findNearestWithHighRating(Location location, Integer radius, Cursor after, Integer limit, Locale locale);
+    List<Recommendation> findNearestByCategoriesLiked(String accessToken, Location location, Integer radius, Cursor after, Integer limit, Locale locale);
+    List<Recommendation> findNearestByCategoriesLikedByFriends(String accessToken, Location location, Integer radius, Cursor after, Integer limit, Locale locale);
 }
\ No newline at end of file
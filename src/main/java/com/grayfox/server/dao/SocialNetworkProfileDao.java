@@ -15,9 +15,16 @@
  */
 package com.grayfox.server.dao;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.User;
 
 public interface SocialNetworkProfileDao {
 
     User collectUserData(String accessToken);
+    User collectProfile(String accessToken);
+    Map<String, Set<Category>> collectFriendsLikes(String accessToken, Collection<String> friendFoursquareIds);
 }
\ No newline at end of file
@@ -15,8 +15,11 @@
  */
 package com.grayfox.server.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.User;
@@ -29,8 +32,13 @@ public interface UserDao {
     List<Category> findLikesByFoursquareId(String foursquareId, Locale locale);
     boolean areFriends(String foursquareId1, String foursquareId2);
     boolean exists(String foursquareId);
+    Set<String> findExistingFoursquareIds(Collection<String> foursquareIds);
+    Set<String> findLikesSyncedFoursquareIds(Collection<String> foursquareIds, long syncedSince);
+    Map<String, List<String>> findStaleFriendsFoursquareIds(long syncedBefore, int limit);
     void save(User user);
     void update(User user);
     void saveLike(String foursquareId, String categoryFoursquareI);
+    int syncLikes(Map<String, Set<Category>> likesByFoursquareId);
+    void deferLikes(Collection<String> foursquareIds, long retryAt);
     void deleteLike(String foursquareId, String categoryFoursquareI);
 }
\ No newline at end of file
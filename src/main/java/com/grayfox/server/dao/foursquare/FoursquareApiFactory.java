@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import com.foursquare4j.FoursquareApi;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = "com.grayfox.server:type=FoursquareApiFactory")
+public class FoursquareApiFactory {
+
+    @Value("${foursquare.app.client.id}")              private String clientId;
+    @Value("${foursquare.app.client.secret}")          private String clientSecret;
+    @Value("${foursquare.api.token.cache.max.size}")   private long tokenCacheMaxSize;
+    @Value("${foursquare.api.token.cache.ttl.millis}") private long tokenCacheTtlMillis;
+
+    private final ConcurrentMap<Locale, FoursquareApi> clientsByLocale = new ConcurrentHashMap<>();
+    private Cache<String, FoursquareApi> clientsByAccessToken;
+
+    @PostConstruct
+    protected void init() {
+        clientsByAccessToken = CacheBuilder.newBuilder()
+            .maximumSize(tokenCacheMaxSize)
+            .expireAfterAccess(tokenCacheTtlMillis, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    public FoursquareApi get(Locale locale) {
+        return clientsByLocale.computeIfAbsent(locale, key -> {
+            FoursquareApi foursquareApi = new FoursquareApi(clientId, clientSecret);
+            foursquareApi.setLocale(key);
+            return foursquareApi;
+        });
+    }
+
+    public FoursquareApi get(String accessToken) {
+        try {
+            return clientsByAccessToken.get(accessToken, () -> {
+                FoursquareApi foursquareApi = new FoursquareApi(clientId, clientSecret);
+                foursquareApi.setAccessToken(accessToken);
+                return foursquareApi;
+            });
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @ManagedAttribute
+    public int getLocaleClientCount() {
+        return clientsByLocale.size();
+    }
+
+    @ManagedAttribute
+    public long getAccessTokenClientCount() {
+        return clientsByAccessToken.size();
+    }
+}
\ No newline at end of file
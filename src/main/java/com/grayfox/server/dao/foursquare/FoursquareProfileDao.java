@@ -15,8 +15,20 @@
  */
 package com.grayfox.server.dao.foursquare;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
 
 import com.foursquare4j.FoursquareApi;
 import com.foursquare4j.response.Group;
@@ -25,6 +37,7 @@ import com.foursquare4j.response.Venue;
 
 import com.grayfox.server.dao.DaoException;
 import com.grayfox.server.dao.SocialNetworkProfileDao;
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.User;
 
@@ -38,31 +51,53 @@ import org.springframework.stereotype.Repository;
 public class FoursquareProfileDao implements SocialNetworkProfileDao {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FoursquareProfileDao.class);
+    private static final String RATE_LIMIT_ERROR_TYPE = "rate_limit_exceeded";
+    private static final String RATE_LIMIT_SHED_KEY = "foursquare.rate_limit.error";
 
-    @Value("${foursquare.app.client.id}")     private String clientId; 
-    @Value("${foursquare.app.client.secret}") private String clientSecret;
+    @Value("${foursquare.likes.max.attempts}")  private int likesMaxAttempts;
+    @Value("${foursquare.likes.backoff.millis}") private long likesBackoffMillis;
+    @Inject private FoursquareApiFactory foursquareApiFactory;
+    @Inject private FoursquareRateLimiter rateLimiter;
+    @Inject @Named("foursquareLikesExecutor") private Executor likesExecutor;
 
     @Override
     public User collectUserData(String accessToken) {
-        FoursquareApi foursquareApi = new FoursquareApi(clientId, clientSecret);
-        foursquareApi.setAccessToken(accessToken);
-        return collectUserData(foursquareApi);
+        return collectUserData(foursquareApiFactory.get(accessToken));
+    }
+
+    @Override
+    public User collectProfile(String accessToken) {
+        return collectProfile(foursquareApiFactory.get(accessToken));
+    }
+
+    @Override
+    public Map<String, Set<Category>> collectFriendsLikes(String accessToken, Collection<String> friendFoursquareIds) {
+        return collectFriendsLikes(foursquareApiFactory.get(accessToken), friendFoursquareIds);
     }
 
     protected User collectUserData(FoursquareApi foursquareApi) {
         LOGGER.trace("Collecting user data...");
-        Result<com.foursquare4j.response.User> foursquareUser = foursquareApi.getUser("self");
+        User user = collectProfile(foursquareApi);
+        Map<String, Set<Category>> friendsLikes = collectFriendsLikes(foursquareApi, user.getFriends().stream().map(User::getFoursquareId).collect(Collectors.toList()));
+        Set<User> friends = new HashSet<>();
+        user.getFriends().forEach(friend -> {
+            friend.setLikes(friendsLikes.get(friend.getFoursquareId()));
+            friends.add(friend);
+        });
+        user.setFriends(friends);
+        LOGGER.trace("Done");
+        return user;
+    }
+
+    protected User collectProfile(FoursquareApi foursquareApi) {
+        Result<com.foursquare4j.response.User> foursquareUser = rateLimiter.call(Priority.INTERACTIVE, () -> foursquareApi.getUser("self"));
         if (foursquareUser.getMeta().getCode() == 200) {
             User user = toUser(foursquareUser.getResponse());
             user.setLikes(collectLikesFrom("self", foursquareApi));
-            Result<Group<com.foursquare4j.response.User>> foursquareFriends = foursquareApi.getUserFriends("self", 500, null);
+            Result<Group<com.foursquare4j.response.User>> foursquareFriends = rateLimiter.call(Priority.INTERACTIVE, () -> foursquareApi.getUserFriends("self", 500, null));
             if (foursquareFriends.getMeta().getCode() == 200) {
                 Set<User> friends = new HashSet<>();
-                for (com.foursquare4j.response.User foursquareFriend : foursquareFriends.getResponse().getItems()) {
-                    User friend = toUser(foursquareFriend);
-                    friend.setLikes(collectLikesFrom(foursquareFriend.getId(), foursquareApi));
-                    friends.add(friend);
-                }
+                for (com.foursquare4j.response.User foursquareFriend : foursquareFriends.getResponse().getItems()) friends.add(toUser(foursquareFriend));
                 user.setFriends(friends);
             } else {
                 LOGGER.error("Foursquare error while requesting [user/friends] [code={}, errorType={}, errorDetail={}]", foursquareFriends.getMeta().getCode(), foursquareFriends.getMeta().getErrorType(), foursquareFriends.getMeta().getErrorDetail());
@@ -71,7 +106,6 @@ public class FoursquareProfileDao implements SocialNetworkProfileDao {
                     .addMessageArgument(foursquareFriends.getMeta().getErrorDetail())
                     .build();
             }
-            LOGGER.trace("Done");
             return user;
         } else {
             LOGGER.error("Foursquare error while requesting [user/self] [code={}, errorType={}, errorDetail={}]", foursquareUser.getMeta().getCode(), foursquareUser.getMeta().getErrorType(), foursquareUser.getMeta().getErrorDetail());
@@ -82,6 +116,19 @@ public class FoursquareProfileDao implements SocialNetworkProfileDao {
         }
     }
 
+    protected Map<String, Set<Category>> collectFriendsLikes(FoursquareApi foursquareApi, Collection<String> friendFoursquareIds) {
+        Map<String, Set<Category>> friendsLikes = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(friendFoursquareIds.size());
+        for (String friendFoursquareId : friendFoursquareIds) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                Set<Category> likes = collectFriendLikes(friendFoursquareId, foursquareApi);
+                if (likes != null) friendsLikes.put(friendFoursquareId, likes);
+            }, likesExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return friendsLikes;
+    }
+
     private User toUser(com.foursquare4j.response.User foursquareUser) {
         User user = new User();
         user.setName(foursquareUser.getFirstName());
@@ -96,18 +143,9 @@ public class FoursquareProfileDao implements SocialNetworkProfileDao {
     }
 
     private Set<Category> collectLikesFrom(String userId, FoursquareApi foursquareApi) {
-        Result<Group<Venue>> venueLikes = foursquareApi.getUserVenueLikes(userId, null, null, null, null, null);
-        if (venueLikes.getMeta().getCode() == 200) {
-            Set<Category> myCategories = new HashSet<>();
-            for (Venue venue : venueLikes.getResponse().getItems()) {
-                for (com.foursquare4j.response.Category category : venue.getCategories()) {
-                    Category myCategory = new Category();
-                    myCategory.setFoursquareId(category.getId());
-                    myCategories.add(myCategory);
-                }
-            }
-            return myCategories;
-        } else {
+        Result<Group<Venue>> venueLikes = requestVenueLikes(userId, foursquareApi, Priority.INTERACTIVE);
+        if (venueLikes.getMeta().getCode() == 200) return toCategories(venueLikes);
+        else {
             LOGGER.error("Foursquare error while requesting [user/venuelikes] [code={}, errorType={}, errorDetail={}]", venueLikes.getMeta().getCode(), venueLikes.getMeta().getErrorType(), venueLikes.getMeta().getErrorDetail());
             throw new DaoException.Builder()
                 .messageKey("foursquare.request.error")
@@ -115,4 +153,64 @@ public class FoursquareProfileDao implements SocialNetworkProfileDao {
                 .build();
         }
     }
+
+    private Set<Category> collectFriendLikes(String friendId, FoursquareApi foursquareApi) {
+        try {
+            Result<Group<Venue>> venueLikes = requestVenueLikes(friendId, foursquareApi, Priority.BACKGROUND);
+            if (venueLikes.getMeta().getCode() == 200) return toCategories(venueLikes);
+            LOGGER.warn("Foursquare error while requesting [user/venuelikes] of friend [{}], skipping its likes [code={}, errorType={}, errorDetail={}]", friendId, venueLikes.getMeta().getCode(), venueLikes.getMeta().getErrorType(), venueLikes.getMeta().getErrorDetail());
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Error while requesting [user/venuelikes] of friend [{}], skipping its likes", friendId, ex);
+        }
+        return null;
+    }
+
+    private Result<Group<Venue>> requestVenueLikes(String userId, FoursquareApi foursquareApi, Priority priority) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                Result<Group<Venue>> venueLikes = rateLimiter.call(priority, () -> foursquareApi.getUserVenueLikes(userId, null, null, null, null, null));
+                if (attempt >= likesMaxAttempts || !isRetryable(venueLikes)) return venueLikes;
+                LOGGER.debug("Retrying [user/venuelikes] of [{}] [code={}, errorType={}]", userId, venueLikes.getMeta().getCode(), venueLikes.getMeta().getErrorType());
+            } catch (RuntimeException ex) {
+                if (attempt >= likesMaxAttempts || isShed(ex)) throw ex;
+                LOGGER.debug("Retrying [user/venuelikes] of [{}]", userId, ex);
+            }
+            backOff(attempt);
+        }
+    }
+
+    private boolean isRetryable(Result<?> result) {
+        int code = result.getMeta().getCode();
+        return code == 429 || code >= 500 || RATE_LIMIT_ERROR_TYPE.equals(result.getMeta().getErrorType());
+    }
+
+    private boolean isShed(RuntimeException ex) {
+        return ex instanceof DaoException && RATE_LIMIT_SHED_KEY.equals(((DaoException) ex).getMessageKey());
+    }
+
+    private void backOff(int attempt) {
+        long backoffMillis = likesBackoffMillis * (1L << (attempt - 1));
+        try {
+            Thread.sleep(backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DaoException.Builder()
+                .messageKey("foursquare.request.error")
+                .addMessageArgument(ex.getMessage())
+                .cause(ex)
+                .build();
+        }
+    }
+
+    private Set<Category> toCategories(Result<Group<Venue>> venueLikes) {
+        Set<Category> myCategories = new HashSet<>();
+        for (Venue venue : venueLikes.getResponse().getItems()) {
+            for (com.foursquare4j.response.Category category : venue.getCategories()) {
+                Category myCategory = new Category();
+                myCategory.setFoursquareId(category.getId());
+                myCategories.add(myCategory);
+            }
+        }
+        return myCategories;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import com.foursquare4j.response.Result;
+
+import com.grayfox.server.dao.DaoException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = "com.grayfox.server:type=FoursquareRateLimiter")
+public class FoursquareRateLimiter {
+
+    public static enum Priority { INTERACTIVE, BACKGROUND }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FoursquareRateLimiter.class);
+    private static final String RATE_LIMIT_ERROR_TYPE = "rate_limit_exceeded";
+    private static final String QUOTA_EXCEEDED_ERROR_TYPE = "quota_exceeded";
+
+    @Value("${foursquare.rate.enabled}")                      private boolean enabled;
+    @Value("${foursquare.rate.max.per.second}")               private double maxRate;
+    @Value("${foursquare.rate.min.per.second}")               private double minRate;
+    @Value("${foursquare.rate.burst}")                        private double burst;
+    @Value("${foursquare.rate.background.reserve}")           private double backgroundReserve;
+    @Value("${foursquare.rate.interactive.max.wait.millis}")  private long interactiveMaxWaitMillis;
+    @Value("${foursquare.rate.background.max.wait.millis}")   private long backgroundMaxWaitMillis;
+
+    private final AtomicLong interactiveShedCount = new AtomicLong();
+    private final AtomicLong backgroundShedCount = new AtomicLong();
+    private final AtomicLong throttleCount = new AtomicLong();
+    private double rate;
+    private double tokens;
+    private long refilledAt;
+    private int interactiveWaiting;
+
+    @PostConstruct
+    protected synchronized void init() {
+        rate = maxRate;
+        tokens = burst;
+        refilledAt = System.nanoTime();
+    }
+
+    public <T> Result<T> call(Priority priority, Supplier<Result<T>> request) {
+        if (!enabled) return request.get();
+        acquire(priority);
+        Result<T> result = request.get();
+        adapt(result);
+        return result;
+    }
+
+    private synchronized void acquire(Priority priority) {
+        boolean interactive = priority == Priority.INTERACTIVE;
+        double required = interactive ? 1d : 1d + backgroundReserve;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interactive ? interactiveMaxWaitMillis : backgroundMaxWaitMillis);
+        if (interactive) interactiveWaiting++;
+        try {
+            while (true) {
+                refill();
+                if (tokens >= required && (interactive || interactiveWaiting == 0)) {
+                    tokens -= 1d;
+                    return;
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    (interactive ? interactiveShedCount : backgroundShedCount).incrementAndGet();
+                    LOGGER.warn("Foursquare rate limit reached, shedding {} request", priority);
+                    throw new DaoException.Builder()
+                        .messageKey("foursquare.rate_limit.error")
+                        .withoutStackTrace()
+                        .build();
+                }
+                long refillNanos = (long) (Math.max(required - tokens, 0d) / rate * TimeUnit.SECONDS.toNanos(1));
+                TimeUnit.NANOSECONDS.timedWait(this, Math.min(Math.max(refillNanos, TimeUnit.MILLISECONDS.toNanos(1)), remainingNanos));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DaoException.Builder()
+                .messageKey("foursquare.request.error")
+                .addMessageArgument(ex.getMessage())
+                .cause(ex)
+                .build();
+        } finally {
+            if (interactive && --interactiveWaiting == 0) notifyAll();
+        }
+    }
+
+    private synchronized void adapt(Result<?> result) {
+        if (result == null || result.getMeta() == null) return;
+        int code = result.getMeta().getCode();
+        String errorType = result.getMeta().getErrorType();
+        if (code == 429 || RATE_LIMIT_ERROR_TYPE.equals(errorType) || QUOTA_EXCEEDED_ERROR_TYPE.equals(errorType)) {
+            refill();
+            rate = Math.max(rate / 2d, minRate);
+            tokens = Math.min(tokens, 0d);
+            throttleCount.incrementAndGet();
+            LOGGER.warn("Foursquare rate limited us [code={}, errorType={}], slowing down to {} requests/s", code, errorType, rate);
+        } else if (code == 200 && rate < maxRate) {
+            refill();
+            rate = Math.min(rate + (maxRate - minRate) / 100d, maxRate);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(tokens + (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1), burst);
+        refilledAt = now;
+    }
+
+    @ManagedAttribute
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    @ManagedAttribute
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    @ManagedAttribute
+    public long getInteractiveShedCount() {
+        return interactiveShedCount.get();
+    }
+
+    @ManagedAttribute
+    public long getBackgroundShedCount() {
+        return backgroundShedCount.get();
+    }
+
+    @ManagedAttribute
+    public long getThrottleCount() {
+        return throttleCount.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.foursquare4j.response.Result;
+
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = "com.grayfox.server:type=FoursquareRequestCoalescer")
+public class FoursquareRequestCoalescer {
+
+    private final ConcurrentMap<Key, CompletableFuture<Result<?>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public <T> Result<T> get(String endpoint, String id, Locale locale, Supplier<Result<T>> request) {
+        return get(endpoint, id, locale, Priority.INTERACTIVE, request);
+    }
+
+    // Callers only join a leader of their own priority, an interactive one must not inherit a background wait or shed
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> get(String endpoint, String id, Locale locale, Priority priority, Supplier<Result<T>> request) {
+        Key key = new Key(endpoint, id, locale, priority);
+        requestCount.incrementAndGet();
+        CompletableFuture<Result<?>> future = new CompletableFuture<>();
+        CompletableFuture<Result<?>> leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            coalescedCount.incrementAndGet();
+            try {
+                return (Result<T>) leader.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+                if (ex.getCause() instanceof Error) throw (Error) ex.getCause();
+                throw ex;
+            }
+        }
+        try {
+            Result<T> result = request.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    @ManagedAttribute
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @ManagedAttribute
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    @ManagedAttribute
+    public double getCoalescingRatio() {
+        long requests = requestCount.get();
+        return requests == 0 ? 0d : (double) coalescedCount.get() / requests;
+    }
+
+    @ManagedAttribute
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static class Key {
+
+        private final String endpoint;
+        private final String id;
+        private final Locale locale;
+        private final Priority priority;
+
+        private Key(String endpoint, String id, Locale locale, Priority priority) {
+            this.endpoint = endpoint;
+            this.id = id;
+            this.locale = locale;
+            this.priority = priority;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, id, locale, priority);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return Objects.equals(endpoint, other.endpoint) &&
+                   Objects.equals(id, other.id) &&
+                   Objects.equals(locale, other.locale) &&
+                   priority == other.priority;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.foursquare4j.response.Result;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = "com.grayfox.server:type=FoursquareResponseCache")
+public class FoursquareResponseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FoursquareResponseCache.class);
+
+    @Value("${foursquare.cache.enabled}")      private boolean enabled;
+    @Value("${foursquare.cache.max.size}")     private long maxSize;
+    @Value("${foursquare.cache.ttl.millis}")   private long ttlMillis;
+    @Value("${foursquare.cache.stale.millis}") private long staleMillis;
+    @Inject @Named("foursquareRefreshExecutor") private Executor refreshExecutor;
+
+    private final Set<Key> refreshingKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private Cache<Key, Entry> cache;
+
+    @PostConstruct
+    protected void init() {
+        cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlMillis + staleMillis, TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> get(String endpoint, String id, Locale locale, Supplier<Result<T>> request) {
+        if (!enabled) return request.get();
+        Key key = new Key(endpoint, id, locale);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.fetchedAt;
+            if (age <= ttlMillis) return (Result<T>) entry.result;
+            if (age <= ttlMillis + staleMillis) {
+                staleHitCount.incrementAndGet();
+                revalidate(key, request);
+                return (Result<T>) entry.result;
+            }
+        }
+        return fetch(key, request);
+    }
+
+    private <T> void revalidate(Key key, Supplier<Result<T>> request) {
+        if (!refreshingKeys.add(key)) return;
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetch(key, request);
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("Can't revalidate {}", key, ex);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshingKeys.remove(key);
+            LOGGER.debug("Revalidation of {} rejected, serving stale response", key);
+        }
+    }
+
+    private <T> Result<T> fetch(Key key, Supplier<Result<T>> request) {
+        Result<T> result = request.get();
+        if (result.getMeta().getCode() == 200) cache.put(key, new Entry(result));
+        return result;
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @ManagedAttribute
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        return cache.size();
+    }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static class Key {
+
+        private final String endpoint;
+        private final String id;
+        private final Locale locale;
+
+        private Key(String endpoint, String id, Locale locale) {
+            this.endpoint = endpoint;
+            this.id = id;
+            this.locale = locale;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, id, locale);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return Objects.equals(endpoint, other.endpoint) &&
+                   Objects.equals(id, other.id) &&
+                   Objects.equals(locale, other.locale);
+        }
+
+        @Override
+        public String toString() {
+            return "Key [endpoint=" + endpoint + ", id=" + id + ", locale=" + locale + "]";
+        }
+    }
+
+    private static class Entry {
+
+        private final Result<?> result;
+        private final long fetchedAt;
+
+        private Entry(Result<?> result) {
+            this.result = result;
+            this.fetchedAt = System.currentTimeMillis();
+        }
+    }
+}
\ No newline at end of file
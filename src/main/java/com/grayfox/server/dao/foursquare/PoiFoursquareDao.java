@@ -17,12 +17,21 @@ package com.grayfox.server.dao.foursquare;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
+import javax.inject.Named;
+
 import com.foursquare4j.FoursquareApi;
 import com.foursquare4j.response.Group;
 import com.foursquare4j.response.Result;
@@ -30,6 +39,9 @@ import com.foursquare4j.response.Venue;
 
 import com.grayfox.server.dao.DaoException;
 import com.grayfox.server.dao.PoiDao;
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
+import com.grayfox.server.dao.jdbc.PoiJdbcDao;
+import com.grayfox.server.dao.jdbc.SearchCellJdbcDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Poi;
@@ -38,62 +50,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class PoiFoursquareDao implements PoiDao {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PoiFoursquareDao.class);
+    private static final String VENUE_ENDPOINT = "venues";
+    private static final String NEXT_VENUES_ENDPOINT = "venues/nextvenues";
+    private static final String SEARCH_ENDPOINT = "venues/search";
+    private static final String SEARCH_LOCATION_FORMAT = "%.4f,%.4f";
+    private static final String RATE_LIMIT_SHED_KEY = "foursquare.rate_limit.error";
 
-    @Value("${foursquare.app.client.id}")     private String clientId; 
-    @Value("${foursquare.app.client.secret}") private String clientSecret;
+    @Value("${foursquare.route.prefetch}")    private int prefetchCandidates;
+    @Value("${poi.next.enabled}")             private boolean localGraphEnabled;
+    @Value("${poi.search.enabled}")           private boolean localSearchEnabled;
+    @Inject private FoursquareApiFactory foursquareApiFactory;
+    @Inject private FoursquareResponseCache responseCache;
+    @Inject private FoursquareRequestCoalescer requestCoalescer;
+    @Inject private FoursquareRateLimiter rateLimiter;
+    @Inject private PoiJdbcDao poiLocalDao;
+    @Inject private SearchCellJdbcDao searchCellLocalDao;
+    @Inject @Named("foursquarePrefetchExecutor") private Executor prefetchExecutor;
+    @Inject @Named("poiGraphExecutor")           private Executor graphExecutor;
 
     @Override
     public List<Poi> findNext(String poiFoursquareId, int limit, Locale locale) {
-        FoursquareApi foursquareApi = new FoursquareApi(clientId, clientSecret);
-        foursquareApi.setLocale(locale);
-        return fetchNext(foursquareApi, poiFoursquareId, limit);
+        return fetchNext(foursquareApiFactory.get(locale), poiFoursquareId, limit, locale);
     }
 
-    protected List<Poi> fetchNext(FoursquareApi foursquareApi, String poiFoursquareId, int limit) {
-        Result<Venue> venueResult = foursquareApi.getVenue(poiFoursquareId);
-        if (venueResult.getMeta().getCode() == 200) {
-            Poi seed = toPoi(venueResult.getResponse());
-            Set<String> categoryIds = new HashSet<>();
-            categoryIds.addAll(seed.getCategories().stream().map(Category::getFoursquareId).collect(Collectors.toSet()));
-            List<Poi> pois = new ArrayList<>(limit);
-            Poi currentPoi = seed;
-            for (int numberOfPois = 0; numberOfPois < limit-1; numberOfPois++) {
-                Result<Group<Venue>> nextVenues = foursquareApi.getNextVenues(currentPoi.getFoursquareId());
-                if (nextVenues.getMeta().getCode() == 200) {
-                    for (Venue venue : nextVenues.getResponse().getItems()) {
-                        currentPoi = toPoi(venue);
-                        final String currentFoursquarId = venue.getId();
-                        List<Poi> matchingPois = pois.stream().filter(poi -> poi.getFoursquareId().equals(currentFoursquarId)).collect(Collectors.toList());
-                        if (matchingPois.isEmpty()) {
-                            boolean existsCategory = false;
-                            for (Category currentPoiCategory : currentPoi.getCategories()) {
-                                if (!categoryIds.add(currentPoiCategory.getFoursquareId())) {
-                                    existsCategory = true;
-                                    break;
-                                }
-                            }
-                            if (!existsCategory) {
-                                pois.add(currentPoi);
-                                break;
-                            }
-                        }
-                    }
-                } else {
-                    LOGGER.error("Foursquare error while requesting [venues/{}/nextvenues] [code={}, errorType={}, errorDetail={}]", currentPoi.getFoursquareId(), nextVenues.getMeta().getCode(), nextVenues.getMeta().getErrorType(), nextVenues.getMeta().getErrorDetail());
-                    throw new DaoException.Builder()
-                        .messageKey("foursquare.request.error")
-                        .addMessageArgument(nextVenues.getMeta().getErrorDetail())
-                        .build();
-                }
-            }
-            return pois;
-        } else {
+    protected List<Poi> fetchNext(FoursquareApi foursquareApi, String poiFoursquareId, int limit, Locale locale) {
+        Result<Venue> venueResult = responseCache.get(VENUE_ENDPOINT, poiFoursquareId, locale, () -> requestCoalescer.get(VENUE_ENDPOINT, poiFoursquareId, locale, () -> rateLimiter.call(Priority.INTERACTIVE, () -> foursquareApi.getVenue(poiFoursquareId))));
+        if (venueResult.getMeta().getCode() == 200) return new RouteBuilder(foursquareApi, locale).build(toPoi(venueResult.getResponse()), limit);
+        else {
             LOGGER.error("Foursquare error while requesting [venues/{}] [code={}, errorType={}, errorDetail={}]", poiFoursquareId, venueResult.getMeta().getCode(), venueResult.getMeta().getErrorType(), venueResult.getMeta().getErrorDetail());
             throw new DaoException.Builder()
                 .messageKey("foursquare.request.error")
@@ -104,13 +94,15 @@ public class PoiFoursquareDao implements PoiDao {
 
     @Override
     public List<Poi> findNearestByCategory(Location location, Integer radius, String categoryFoursquareId, Locale locale) {
-        FoursquareApi foursquareApi = new FoursquareApi(clientId, clientSecret);
-        foursquareApi.setLocale(locale);
-        return fetchNearestByCategory(foursquareApi, location, radius, categoryFoursquareId);
+        List<Poi> pois = fetchNearestByCategory(foursquareApiFactory.get(locale), location, radius, categoryFoursquareId, locale);
+        if (localSearchEnabled) saveSearchLocally(location, radius, categoryFoursquareId, pois);
+        return pois;
     }
 
-    protected List<Poi> fetchNearestByCategory(FoursquareApi foursquareApi, Location location, Integer radius, String categoryFoursquareId) {
-        Result<Venue[]> venuesResult = foursquareApi.searchVenues(location.stringValues(), null, null, null, null, null, null, null, radius, null, null, categoryFoursquareId, null, null, null);
+    protected List<Poi> fetchNearestByCategory(FoursquareApi foursquareApi, Location location, Integer radius, String categoryFoursquareId, Locale locale) {
+        String ll = String.format(Locale.ROOT, SEARCH_LOCATION_FORMAT, location.getLatitude(), location.getLongitude());
+        Result<Venue[]> venuesResult = requestCoalescer.get(SEARCH_ENDPOINT, new StringBuilder().append(ll).append(';').append(radius).append(';').append(categoryFoursquareId).toString(), locale, 
+                () -> rateLimiter.call(Priority.INTERACTIVE, () -> foursquareApi.searchVenues(ll, null, null, null, null, null, null, null, radius, null, null, categoryFoursquareId, null, null, null)));
         if (venuesResult.getMeta().getCode() == 200) {
             List<Poi> pois = new ArrayList<>(venuesResult.getResponse().length);
             Arrays.stream(venuesResult.getResponse()).forEach(venue -> pois.add(toPoi(venue)));
@@ -124,6 +116,36 @@ public class PoiFoursquareDao implements PoiDao {
         }
     }
 
+    private void saveSearchLocally(Location location, Integer radius, String categoryFoursquareId, List<Poi> pois) {
+        try {
+            graphExecutor.execute(() -> {
+                try {
+                    searchCellLocalDao.save(location, radius, categoryFoursquareId, pois);
+                } catch (DataAccessException ex) {
+                    LOGGER.warn("Can't save search of category [{}] near [{}] locally", categoryFoursquareId, location, ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.debug("Local graph executor is saturated, skipping search of category [{}] near [{}]", categoryFoursquareId, location);
+        }
+    }
+
+    private void saveNextLocally(Poi poi, Group<Venue> nextVenues) {
+        List<Poi> nextPois = new ArrayList<>();
+        for (Venue venue : nextVenues.getItems()) nextPois.add(toPoi(venue));
+        try {
+            graphExecutor.execute(() -> {
+                try {
+                    poiLocalDao.saveNext(poi, nextPois);
+                } catch (DataAccessException ex) {
+                    LOGGER.warn("Can't save next venues of [{}] locally", poi.getFoursquareId(), ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.debug("Local graph executor is saturated, skipping next venues of [{}]", poi.getFoursquareId());
+        }
+    }
+
     private Poi toPoi(Venue venue) {
         Poi poi = new Poi();
         poi.setName(venue.getName());
@@ -142,4 +164,111 @@ public class PoiFoursquareDao implements PoiDao {
         }
         return poi;
     }
+
+    private class RouteBuilder {
+
+        private final FoursquareApi foursquareApi;
+        private final Locale locale;
+        private final Set<String> poiIds = new HashSet<>();
+        private final Set<String> categoryIds = new HashSet<>();
+        private final Map<String, CompletableFuture<Result<Group<Venue>>>> nextVenues = new HashMap<>();
+
+        private RouteBuilder(FoursquareApi foursquareApi, Locale locale) {
+            this.foursquareApi = foursquareApi;
+            this.locale = locale;
+        }
+
+        private List<Poi> build(Poi seed, int limit) {
+            categoryIds.addAll(seed.getCategories().stream().map(Category::getFoursquareId).collect(Collectors.toSet()));
+            List<Poi> pois = new ArrayList<>(limit);
+            List<Poi> origins = Arrays.asList(seed);
+            for (int numberOfPois = 0; numberOfPois < limit-1; numberOfPois++) {
+                List<Venue> candidates = nextCandidatesOf(origins);
+                if (candidates.isEmpty()) break;
+                Poi currentPoi = toPoi(candidates.get(0));
+                pois.add(currentPoi);
+                poiIds.add(currentPoi.getFoursquareId());
+                categoryIds.addAll(currentPoi.getCategories().stream().map(Category::getFoursquareId).collect(Collectors.toSet()));
+                origins = new ArrayList<>(prefetchCandidates);
+                origins.add(currentPoi);
+                for (Venue venue : candidates) {
+                    if (origins.size() >= prefetchCandidates) break;
+                    if (isCandidate(venue)) origins.add(toPoi(venue));
+                }
+                if (numberOfPois < limit-2) prefetch(origins.subList(1, origins.size()));
+            }
+            return pois;
+        }
+
+        // Falls back to the prefetched alternatives when the picked venue fails or leads nowhere new
+        private List<Venue> nextCandidatesOf(List<Poi> origins) {
+            DaoException firstError = null;
+            for (Poi origin : origins) {
+                try {
+                    List<Venue> candidates = nextVenuesOf(origin).getItems().stream().filter(this::isCandidate).collect(Collectors.toList());
+                    if (!candidates.isEmpty()) return candidates;
+                } catch (DaoException ex) {
+                    LOGGER.warn("Can't continue route from [{}], trying next candidate", origin.getFoursquareId());
+                    if (firstError == null) firstError = ex;
+                }
+            }
+            if (firstError != null) throw firstError;
+            return new ArrayList<>(0);
+        }
+
+        private void prefetch(List<Poi> alternatives) {
+            for (Poi poi : alternatives) {
+                if (!nextVenues.containsKey(poi.getFoursquareId())) {
+                    try {
+                        nextVenues.put(poi.getFoursquareId(), CompletableFuture.supplyAsync(() -> requestNextVenues(poi, Priority.BACKGROUND), prefetchExecutor));
+                    } catch (RejectedExecutionException ex) {
+                        LOGGER.debug("Prefetch executor is saturated, skipping prefetch of [venues/{}/nextvenues]", poi.getFoursquareId());
+                        return;
+                    }
+                }
+            }
+        }
+
+        private boolean isCandidate(Venue venue) {
+            if (poiIds.contains(venue.getId())) return false;
+            for (com.foursquare4j.response.Category foursquareCategory : venue.getCategories()) {
+                if (categoryIds.contains(foursquareCategory.getId())) return false;
+            }
+            return true;
+        }
+
+        private Group<Venue> nextVenuesOf(Poi poi) {
+            String poiFoursquareId = poi.getFoursquareId();
+            CompletableFuture<Result<Group<Venue>>> prefetched = nextVenues.get(poiFoursquareId);
+            Result<Group<Venue>> result;
+            if (prefetched != null) {
+                try {
+                    result = prefetched.join();
+                } catch (CompletionException ex) {
+                    if (ex.getCause() instanceof DaoException && RATE_LIMIT_SHED_KEY.equals(((DaoException) ex.getCause()).getMessageKey())) {
+                        LOGGER.debug("Prefetch of [venues/{}/nextvenues] was shed, requesting it now", poiFoursquareId);
+                        result = requestNextVenues(poi, Priority.INTERACTIVE);
+                    } else if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+                    else throw ex;
+                }
+            } else {
+                result = requestNextVenues(poi, Priority.INTERACTIVE);
+                nextVenues.put(poiFoursquareId, CompletableFuture.completedFuture(result));
+            }
+            if (result.getMeta().getCode() == 200) return result.getResponse();
+            else {
+                LOGGER.error("Foursquare error while requesting [venues/{}/nextvenues] [code={}, errorType={}, errorDetail={}]", poiFoursquareId, result.getMeta().getCode(), result.getMeta().getErrorType(), result.getMeta().getErrorDetail());
+                throw new DaoException.Builder()
+                    .messageKey("foursquare.request.error")
+                    .addMessageArgument(result.getMeta().getErrorDetail())
+                    .build();
+            }
+        }
+
+        private Result<Group<Venue>> requestNextVenues(Poi poi, Priority priority) {
+            Result<Group<Venue>> result = responseCache.get(NEXT_VENUES_ENDPOINT, poi.getFoursquareId(), locale, () -> requestCoalescer.get(NEXT_VENUES_ENDPOINT, poi.getFoursquareId(), locale, priority, () -> rateLimiter.call(priority, () -> foursquareApi.getNextVenues(poi.getFoursquareId()))));
+            if (localGraphEnabled && result.getMeta().getCode() == 200) saveNextLocally(poi, result.getResponse());
+            return result;
+        }
+    }
 }
\ No newline at end of file
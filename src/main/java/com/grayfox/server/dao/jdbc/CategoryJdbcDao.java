@@ -16,16 +16,34 @@
 package com.grayfox.server.dao.jdbc;
 
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
 
 import com.grayfox.server.dao.CategoryDao;
 import com.grayfox.server.domain.Category;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import org.springframework.stereotype.Repository;
 
 @Repository("categoryLocalDao")
 public class CategoryJdbcDao extends JdbcDao implements CategoryDao {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryJdbcDao.class);
+    private static final int MAX_CATEGORIES_BY_PARTIAL_NAME = 5;
+
+    @Inject private CategorySearchIndex searchIndex;
+
     protected Category findByFoursquareId(String foursquareId, Locale locale) {
         return getJdbcTemplate().queryForObject(getQuery("Category.findByFoursquareId", locale), 
                 (ResultSet rs, int i) -> {
@@ -41,8 +59,9 @@ public class CategoryJdbcDao extends JdbcDao implements CategoryDao {
 
     @Override
     public List<Category> findByPartialName(String partialName, Locale locale) {
-        String query = String.format(getQuery("Category.findByPartialName", locale), partialName);
-        return getJdbcTemplate().query(query, 
+        if (searchIndex.isLoaded()) return searchIndex.search(partialName, locale, MAX_CATEGORIES_BY_PARTIAL_NAME);
+        LOGGER.warn("Category search index not loaded, searching the database");
+        return getJdbcTemplate().query(getQuery("Category.findByPartialName", locale), 
                 (ResultSet rs, int i) -> {
                     Category category = new Category();
                     int columnIndex = 1;
@@ -51,19 +70,23 @@ public class CategoryJdbcDao extends JdbcDao implements CategoryDao {
                     category.setIconUrl(rs.getString(columnIndex++));
                     category.setFoursquareId(rs.getString(columnIndex++));
                     return category;
-                });
+                }, "(?i).*" + Pattern.quote(partialName.trim()) + ".*", MAX_CATEGORIES_BY_PARTIAL_NAME);
     }
 
-    protected List<Category> findByPoiFoursquareId(String foursquareId, Locale locale) {
-        return getJdbcTemplate().query(getQuery("Category.findByPoiFoursquareId", locale), 
-                (ResultSet rs, int i) -> {
+    protected Map<String, Set<Category>> findByPoiFoursquareIds(Collection<String> foursquareIds, Locale locale) {
+        Map<String, Set<Category>> categoriesByPoi = new HashMap<>();
+        if (foursquareIds.isEmpty()) return categoriesByPoi;
+        getJdbcTemplate().query(getQuery("Category.findByPoiFoursquareIds", locale), 
+                (ResultSet rs) -> {
                     Category category = new Category();
                     int columnIndex = 1;
+                    String poiFoursquareId = rs.getString(columnIndex++);
                     category.setId(rs.getLong(columnIndex++));
                     category.setName(rs.getString(columnIndex++));
                     category.setIconUrl(rs.getString(columnIndex++));
                     category.setFoursquareId(rs.getString(columnIndex++));
-                    return category;
-                }, foursquareId);
+                    categoriesByPoi.computeIfAbsent(poiFoursquareId, key -> new HashSet<>()).add(category);
+                }, new ArrayList<>(foursquareIds));
+        return categoriesByPoi;
     }
 }
\ No newline at end of file
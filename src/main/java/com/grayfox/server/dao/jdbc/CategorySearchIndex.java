@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import com.grayfox.server.domain.Category;
+import com.grayfox.server.util.Constants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = "com.grayfox.server:type=CategorySearchIndex")
+public class CategorySearchIndex extends JdbcDao {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategorySearchIndex.class);
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int GRAM_LENGTH = 3;
+
+    private volatile Map<Locale, Index> indexes;
+
+    @PostConstruct
+    private void init() {
+        try {
+            refresh();
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Can't load category search index", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${category.index.refresh.delay}", initialDelayString = "${category.index.refresh.delay}")
+    @ManagedOperation(description = "Reloads every category from the database")
+    public void refresh() {
+        List<IndexedCategory> defaultNames = new ArrayList<>();
+        List<IndexedCategory> spanishNames = new ArrayList<>();
+        getJdbcTemplate().query(getQuery("Category.findAll"), 
+                (ResultSet rs) -> {
+                    int columnIndex = 1;
+                    long id = rs.getLong(columnIndex++);
+                    String defaultName = rs.getString(columnIndex++);
+                    String spanishName = rs.getString(columnIndex++);
+                    String iconUrl = rs.getString(columnIndex++);
+                    String foursquareId = rs.getString(columnIndex++);
+                    if (defaultName != null) defaultNames.add(new IndexedCategory(id, defaultName, iconUrl, foursquareId));
+                    if (spanishName != null) spanishNames.add(new IndexedCategory(id, spanishName, iconUrl, foursquareId));
+                });
+        Map<Locale, Index> newIndexes = new HashMap<>();
+        newIndexes.put(Locale.ROOT, new Index(defaultNames));
+        newIndexes.put(Constants.Locales.SPANISH, new Index(spanishNames));
+        indexes = Collections.unmodifiableMap(newIndexes);
+        LOGGER.debug("Category search index refreshed with {} categories", defaultNames.size());
+    }
+
+    public boolean isLoaded() {
+        return indexes != null;
+    }
+
+    public List<Category> search(String partialName, Locale locale, int limit) {
+        Index index = indexes.get(Constants.Locales.SPANISH.equals(locale) ? Constants.Locales.SPANISH : Locale.ROOT);
+        return index.search(fold(partialName), limit);
+    }
+
+    private static String fold(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static class IndexedCategory {
+
+        private final long id;
+        private final String name;
+        private final String foldedName;
+        private final String iconUrl;
+        private final String foursquareId;
+
+        private IndexedCategory(long id, String name, String iconUrl, String foursquareId) {
+            this.id = id;
+            this.name = name;
+            this.foldedName = fold(name);
+            this.iconUrl = iconUrl;
+            this.foursquareId = foursquareId;
+        }
+
+        private boolean isWordPrefix(String foldedQuery) {
+            return foldedName.startsWith(foldedQuery) || foldedName.contains(" " + foldedQuery);
+        }
+
+        private Category toCategory() {
+            Category category = new Category();
+            category.setId(id);
+            category.setName(name);
+            category.setIconUrl(iconUrl);
+            category.setFoursquareId(foursquareId);
+            return category;
+        }
+    }
+
+    private static class Index {
+
+        private final List<IndexedCategory> categories;
+        private final Map<String, int[]> postings;
+
+        private Index(List<IndexedCategory> categories) {
+            categories.sort(Comparator.comparing(category -> category.foldedName));
+            this.categories = categories;
+            Map<String, List<Integer>> grams = new HashMap<>();
+            for (int position = 0; position < categories.size(); position++) {
+                String foldedName = categories.get(position).foldedName;
+                for (int start = 0; start + GRAM_LENGTH <= foldedName.length(); start++) {
+                    List<Integer> positions = grams.computeIfAbsent(foldedName.substring(start, start + GRAM_LENGTH), gram -> new ArrayList<>());
+                    if (positions.isEmpty() || positions.get(positions.size() - 1) != position) positions.add(position);
+                }
+            }
+            postings = new HashMap<>(grams.size() * 2);
+            grams.forEach((gram, positions) -> postings.put(gram, positions.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        private List<Category> search(String foldedQuery, int limit) {
+            if (foldedQuery.isEmpty() || limit <= 0) return new ArrayList<>();
+            int[] candidates = null;
+            for (int start = 0; start + GRAM_LENGTH <= foldedQuery.length(); start++) {
+                int[] positions = postings.get(foldedQuery.substring(start, start + GRAM_LENGTH));
+                if (positions == null) return new ArrayList<>();
+                if (candidates == null || positions.length < candidates.length) candidates = positions;
+            }
+            List<Category> wordPrefixMatches = new ArrayList<>(limit);
+            List<Category> otherMatches = new ArrayList<>(limit);
+            int size = candidates == null ? categories.size() : candidates.length;
+            for (int i = 0; i < size && wordPrefixMatches.size() < limit; i++) {
+                IndexedCategory category = categories.get(candidates == null ? i : candidates[i]);
+                if (!category.foldedName.contains(foldedQuery)) continue;
+                if (category.isWordPrefix(foldedQuery)) wordPrefixMatches.add(category.toCategory());
+                else if (otherMatches.size() < limit) otherMatches.add(category.toCategory());
+            }
+            for (int i = 0; i < otherMatches.size() && wordPrefixMatches.size() < limit; i++) wordPrefixMatches.add(otherMatches.get(i));
+            return wordPrefixMatches;
+        }
+    }
+}
\ No newline at end of file
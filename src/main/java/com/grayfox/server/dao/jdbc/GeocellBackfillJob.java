@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import com.grayfox.server.domain.Location;
+import com.grayfox.server.util.GeoCells;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class GeocellBackfillJob extends JdbcDao {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeocellBackfillJob.class);
+
+    @Value("${poi.geocell.backfill.batch.size}") private int batchSize;
+
+    @PostConstruct
+    private void init() {
+        try {
+            getJdbcTemplate().update(getQuery("Poi.createGeocellIndex"));
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Can't create geocell index", ex);
+        }
+        backfill();
+    }
+
+    @Scheduled(fixedDelayString = "${poi.geocell.backfill.delay}")
+    public void backfill() {
+        int total = 0;
+        int updated;
+        do {
+            updated = backfillBatch();
+            total += updated;
+        } while (updated == batchSize);
+        if (total > 0) LOGGER.info("Geocell assigned to {} POIs", total);
+    }
+
+    protected int backfillBatch() {
+        List<Map<String, Object>> cells = getJdbcTemplate().query(getQuery("Poi.findWithoutGeocell"),
+                (ResultSet rs, int i) -> {
+                    Map<String, Object> cell = new HashMap<>();
+                    int columnIndex = 1;
+                    cell.put("id", rs.getLong(columnIndex++));
+                    Location location = new Location();
+                    location.setLatitude(rs.getDouble(columnIndex++));
+                    location.setLongitude(rs.getDouble(columnIndex++));
+                    cell.put("geocell", GeoCells.encode(location));
+                    return cell;
+                }, batchSize);
+        if (!cells.isEmpty()) getJdbcTemplate().update(getQuery("Poi.updateGeocells"), cells);
+        return cells.size();
+    }
+}
\ No newline at end of file
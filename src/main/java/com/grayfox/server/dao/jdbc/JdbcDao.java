@@ -15,26 +15,18 @@
  */
 package com.grayfox.server.dao.jdbc;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.Locale;
-import java.util.ResourceBundle;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.sql.DataSource;
 
-import com.grayfox.server.util.Constants;
-import com.grayfox.server.util.XmlResourceBundleControl;
-
 import org.springframework.jdbc.core.JdbcTemplate;
 
 abstract class JdbcDao {
 
-    private static final Collection<Locale> SUPPORTED_LOCALES = Collections.singletonList(Constants.Locales.SPANISH);
-    private static final String RESOURCE_BUNDLE_BASE_NAME = "queries";
-
     @Inject private DataSource dataSource;
+    @Inject private QueryRegistry queryRegistry;
 
     private JdbcTemplate jdbcTemplate;
 
@@ -48,10 +40,10 @@ abstract class JdbcDao {
     }
 
     protected String getQuery(String which) {
-        return ResourceBundle.getBundle(RESOURCE_BUNDLE_BASE_NAME, Locale.ROOT, new XmlResourceBundleControl()).getString(which).trim();
+        return queryRegistry.get(which, Locale.ROOT);
     }
 
     protected String getQuery(String which, Locale locale) {
-        return SUPPORTED_LOCALES.contains(locale) ? ResourceBundle.getBundle(RESOURCE_BUNDLE_BASE_NAME, locale, new XmlResourceBundleControl()).getString(which).trim() : getQuery(which);
+        return queryRegistry.get(which, locale);
     }
 }
\ No newline at end of file
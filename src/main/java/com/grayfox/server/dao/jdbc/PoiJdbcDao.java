@@ -1,19 +1,25 @@
 package com.grayfox.server.dao.jdbc;
 
 import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
-import com.grayfox.server.dao.DaoException;
 import com.grayfox.server.dao.PoiDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Poi;
+import com.grayfox.server.util.GeoCells;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 @Repository("poiLocalDao")
@@ -21,11 +27,63 @@ public class PoiJdbcDao extends JdbcDao implements PoiDao {
 
     @Inject private CategoryJdbcDao categoryDao;
 
+    @Value("${poi.next.ttl.millis}") private long nextTtlMillis;
+
     @Override
     public List<Poi> findNext(String poiFoursquareId, int limit, Locale locale) {
-        throw new DaoException.Builder()
-            .messageKey("unsupported.operation.error")
-            .build();
+        Map<String, List<NextPoi>> nextPois = new HashMap<>();
+        getJdbcTemplate().query(String.format(Locale.ROOT, getQuery("Poi.findNextGraph"), Math.max(limit-2, 0)), 
+                (ResultSet rs) -> {
+                    int columnIndex = 1;
+                    String fromFoursquareId = rs.getString(columnIndex++);
+                    Poi poi = new Poi();
+                    poi.setId(rs.getLong(columnIndex++));
+                    poi.setName(rs.getString(columnIndex++));
+                    poi.setLocation(new Location());
+                    poi.getLocation().setLatitude(rs.getDouble(columnIndex++));
+                    poi.getLocation().setLongitude(rs.getDouble(columnIndex++));
+                    poi.setFoursquareId(rs.getString(columnIndex++));
+                    poi.setFoursquareRating(rs.getDouble(columnIndex++));
+                    nextPois.computeIfAbsent(fromFoursquareId, key -> new ArrayList<>()).add(new NextPoi(poi, rs.getDouble(columnIndex++)));
+                }, poiFoursquareId, System.currentTimeMillis() - nextTtlMillis);
+        if (!nextPois.containsKey(poiFoursquareId)) return new ArrayList<>(0);
+        nextPois.values().forEach(candidates -> candidates.sort((n1, n2) -> {
+            int byWeight = Double.compare(n2.weight, n1.weight);
+            return byWeight != 0 ? byWeight : n1.poi.getFoursquareId().compareTo(n2.poi.getFoursquareId());
+        }));
+        Set<String> foursquareIds = new HashSet<>();
+        foursquareIds.add(poiFoursquareId);
+        nextPois.values().forEach(candidates -> candidates.forEach(next -> foursquareIds.add(next.poi.getFoursquareId())));
+        Map<String, Set<Category>> categoriesByPoi = categoryDao.findByPoiFoursquareIds(foursquareIds, locale);
+        Set<String> categoryIds = new HashSet<>();
+        categoriesByPoi.getOrDefault(poiFoursquareId, Collections.emptySet()).forEach(category -> categoryIds.add(category.getFoursquareId()));
+        Set<String> poiIds = new HashSet<>();
+        List<Poi> pois = new ArrayList<>(limit);
+        String currentFoursquareId = poiFoursquareId;
+        for (int numberOfPois = 0; numberOfPois < limit-1; numberOfPois++) {
+            List<NextPoi> candidates = nextPois.get(currentFoursquareId);
+            if (candidates == null) return new ArrayList<>(0);
+            for (NextPoi next : candidates) {
+                currentFoursquareId = next.poi.getFoursquareId();
+                if (!poiIds.contains(currentFoursquareId)) {
+                    boolean existsCategory = false;
+                    Set<Category> categories = categoriesByPoi.getOrDefault(currentFoursquareId, new HashSet<>());
+                    for (Category category : categories) {
+                        if (!categoryIds.add(category.getFoursquareId())) {
+                            existsCategory = true;
+                            break;
+                        }
+                    }
+                    if (!existsCategory) {
+                        next.poi.setCategories(categories);
+                        pois.add(next.poi);
+                        poiIds.add(currentFoursquareId);
+                        break;
+                    }
+                }
+            }
+        }
+        return pois;
     }
 
     @Override
@@ -42,9 +100,69 @@ public class PoiJdbcDao extends JdbcDao implements PoiDao {
                     poi.setFoursquareId(rs.getString(columnIndex++));
                     poi.setFoursquareRating(rs.getDouble(columnIndex++));
                     return poi;
-                }, location.getLatitude(), location.getLongitude(), radius, categoryFoursquareId);
+                }, location.getLatitude(), location.getLongitude(), radius, categoryFoursquareId, GeoCells.covering(location, radius));
         Category category = categoryDao.findByFoursquareId(categoryFoursquareId, locale);
         pois.forEach(poi -> poi.setCategories(new HashSet<>(Arrays.asList(category))));
         return pois;
     }
+
+    public void saveNext(Poi poi, List<Poi> nextPois) {
+        List<Map<String, Object>> nexts = new ArrayList<>(nextPois.size());
+        List<Map<String, Object>> poiCategories = new ArrayList<>();
+        addCategories(poi, poiCategories);
+        for (int rank = 0; rank < nextPois.size(); rank++) {
+            Poi nextPoi = nextPois.get(rank);
+            Map<String, Object> next = new HashMap<>();
+            next.put("foursquareId", nextPoi.getFoursquareId());
+            next.put("name", nextPoi.getName());
+            next.put("latitude", nextPoi.getLocation().getLatitude());
+            next.put("longitude", nextPoi.getLocation().getLongitude());
+            next.put("foursquareRating", nextPoi.getFoursquareRating());
+            next.put("geocell", GeoCells.encode(nextPoi.getLocation()));
+            next.put("weight", 1d / (rank + 1));
+            nexts.add(next);
+            addCategories(nextPoi, poiCategories);
+        }
+        getJdbcTemplate().update(getQuery("Poi.saveNext"), poi.getFoursquareId(), poi.getName(), poi.getLocation().getLatitude(), poi.getLocation().getLongitude(), poi.getFoursquareRating(), GeoCells.encode(poi.getLocation()), nexts, System.currentTimeMillis(), poiCategories);
+    }
+
+    protected void saveAll(List<Poi> pois) {
+        if (pois.isEmpty()) return;
+        List<Map<String, Object>> rows = new ArrayList<>(pois.size());
+        List<Map<String, Object>> poiCategories = new ArrayList<>();
+        for (Poi poi : pois) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("foursquareId", poi.getFoursquareId());
+            row.put("name", poi.getName());
+            row.put("latitude", poi.getLocation().getLatitude());
+            row.put("longitude", poi.getLocation().getLongitude());
+            row.put("foursquareRating", poi.getFoursquareRating());
+            row.put("geocell", GeoCells.encode(poi.getLocation()));
+            rows.add(row);
+            addCategories(poi, poiCategories);
+        }
+        getJdbcTemplate().update(getQuery("Poi.mergeAll"), rows);
+        if (!poiCategories.isEmpty()) getJdbcTemplate().update(getQuery("Poi.createIsRelationships"), poiCategories);
+    }
+
+    private void addCategories(Poi poi, List<Map<String, Object>> poiCategories) {
+        if (poi.getCategories() == null) return;
+        for (Category category : poi.getCategories()) {
+            Map<String, Object> poiCategory = new HashMap<>();
+            poiCategory.put("poiFoursquareId", poi.getFoursquareId());
+            poiCategory.put("categoryFoursquareId", category.getFoursquareId());
+            poiCategories.add(poiCategory);
+        }
+    }
+
+    private static class NextPoi {
+
+        private final Poi poi;
+        private final double weight;
+
+        private NextPoi(Poi poi, double weight) {
+            this.poi = poi;
+            this.weight = weight;
+        }
+    }
 }
\ No newline at end of file
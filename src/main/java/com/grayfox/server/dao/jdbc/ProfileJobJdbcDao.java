@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import com.grayfox.server.dao.ProfileJobDao;
+import com.grayfox.server.domain.ProfileJob;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+
+@Repository("profileJobLocalDao")
+public class ProfileJobJdbcDao extends JdbcDao implements ProfileJobDao {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileJobJdbcDao.class);
+    private static final String ID_SEPARATOR = ",";
+
+    @PostConstruct
+    private void createIndex() {
+        try {
+            getJdbcTemplate().update(getQuery("ProfileJob.createIndex"));
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Can't create profile job index", ex);
+        }
+    }
+
+    @Override
+    public List<ProfileJob> claim(int limit, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        return getJdbcTemplate().query(getQuery("ProfileJob.claim"), 
+                (ResultSet rs, int i) -> {
+                    ProfileJob job = new ProfileJob();
+                    int columnIndex = 1;
+                    job.setId(rs.getLong(columnIndex++));
+                    job.setAccessToken(rs.getString(columnIndex++));
+                    job.setFoursquareAccessToken(rs.getString(columnIndex++));
+                    job.setUserFoursquareId(rs.getString(columnIndex++));
+                    job.setPendingFriendFoursquareIds(split(rs.getString(columnIndex++)));
+                    job.setAttempts(rs.getInt(columnIndex++));
+                    return job;
+                }, now, limit, now + leaseMillis);
+    }
+
+    @Override
+    public void save(ProfileJob job) {
+        job.setId(getJdbcTemplate().queryForObject(getQuery("ProfileJob.create"), Long.class, job.getAccessToken(), job.getFoursquareAccessToken(), System.currentTimeMillis()));
+    }
+
+    @Override
+    public boolean checkpoint(ProfileJob job, long leaseMillis) {
+        String pendingFriendFoursquareIds = job.getPendingFriendFoursquareIds() != null ? String.join(ID_SEPARATOR, job.getPendingFriendFoursquareIds()) : null;
+        return !getJdbcTemplate().queryForList(getQuery("ProfileJob.checkpoint"), Long.class, job.getId(), job.getAttempts(), job.getUserFoursquareId(), pendingFriendFoursquareIds, System.currentTimeMillis() + leaseMillis).isEmpty();
+    }
+
+    @Override
+    public void release(ProfileJob job, long delayMillis) {
+        getJdbcTemplate().update(getQuery("ProfileJob.release"), job.getId(), job.getAttempts(), System.currentTimeMillis() + delayMillis);
+    }
+
+    @Override
+    public void delete(ProfileJob job) {
+        getJdbcTemplate().update(getQuery("ProfileJob.delete"), job.getId(), job.getAttempts());
+    }
+
+    private List<String> split(String ids) {
+        if (ids == null) return null;
+        if (ids.isEmpty()) return new ArrayList<>(0);
+        return new ArrayList<>(Arrays.asList(ids.split(ID_SEPARATOR)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+
+import com.grayfox.server.dao.DaoException;
+import com.grayfox.server.util.Constants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = "com.grayfox.server:type=QueryRegistry")
+public class QueryRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryRegistry.class);
+    private static final Collection<Locale> SUPPORTED_LOCALES = Collections.singletonList(Constants.Locales.SPANISH);
+    private static final String RESOURCE_BASE_NAME = "queries";
+    private static final String RESOURCE_EXTENSION = ".xml";
+
+    private final AtomicReference<Map<Locale, Map<String, String>>> queries = new AtomicReference<>();
+
+    @PostConstruct
+    @ManagedOperation(description = "Reloads every query from the classpath")
+    public void reload() {
+        Map<String, String> defaultQueries = load(RESOURCE_BASE_NAME + RESOURCE_EXTENSION);
+        if (defaultQueries.isEmpty()) {
+            throw new DaoException.Builder()
+                .messageKey("query.load.error")
+                .addMessageArgument(RESOURCE_BASE_NAME + RESOURCE_EXTENSION)
+                .build();
+        }
+        Map<Locale, Map<String, String>> localizedQueries = new HashMap<>();
+        localizedQueries.put(Locale.ROOT, defaultQueries);
+        for (Locale locale : SUPPORTED_LOCALES) {
+            String resourceName = RESOURCE_BASE_NAME + "_" + locale + RESOURCE_EXTENSION;
+            Map<String, String> overrides = load(resourceName);
+            overrides.keySet().stream()
+                .filter(key -> !defaultQueries.containsKey(key))
+                .findAny()
+                .ifPresent(key -> {
+                    throw new DaoException.Builder()
+                        .messageKey("query.unknown_override.error")
+                        .addMessageArgument(key)
+                        .addMessageArgument(resourceName)
+                        .build();
+                });
+            Map<String, String> queriesForLocale = new HashMap<>(defaultQueries);
+            queriesForLocale.putAll(overrides);
+            localizedQueries.put(locale, Collections.unmodifiableMap(queriesForLocale));
+        }
+        queries.set(Collections.unmodifiableMap(localizedQueries));
+        LOGGER.info("{} queries loaded", defaultQueries.size());
+    }
+
+    public String get(String key, Locale locale) {
+        String query = queries.get().get(SUPPORTED_LOCALES.contains(locale) ? locale : Locale.ROOT).get(key);
+        if (query == null) {
+            throw new DaoException.Builder()
+                .messageKey("query.not_found.error")
+                .addMessageArgument(key)
+                .build();
+        }
+        return query;
+    }
+
+    private Map<String, String> load(String resourceName) {
+        Properties properties = new Properties();
+        try (InputStream stream = QueryRegistry.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (stream == null) return Collections.emptyMap();
+            properties.loadFromXML(stream);
+        } catch (IOException ex) {
+            throw new DaoException.Builder()
+                .messageKey("query.load.error")
+                .addMessageArgument(resourceName)
+                .cause(ex)
+                .build();
+        }
+        Map<String, String> loadedQueries = new HashMap<>();
+        properties.stringPropertyNames().forEach(key -> loadedQueries.put(key, properties.getProperty(key).trim()));
+        return Collections.unmodifiableMap(loadedQueries);
+    }
+}
\ No newline at end of file
@@ -19,18 +19,23 @@ import java.sql.ResultSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import com.grayfox.server.dao.RecommendationDao;
+import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.Cursor;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Poi;
 import com.grayfox.server.domain.Recommendation;
+import com.grayfox.server.util.GeoCells;
 import com.grayfox.server.util.Messages;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 @Repository("recommendationLocalDao")
@@ -38,8 +43,15 @@ public class RecommendationJdbcDao extends JdbcDao implements RecommendationDao
 
     @Inject private CategoryJdbcDao categoryDao;
 
+    @Value("${recommendation.query.timeout.seconds}") private int queryTimeoutSeconds;
+
+    @PostConstruct
+    private void init() {
+        getJdbcTemplate().setQueryTimeout(queryTimeoutSeconds);
+    }
+
     @Override
-    public List<Recommendation> findNearestWithHighRating(Location location, Integer radius, Locale locale) {
+    public List<Recommendation> findNearestWithHighRating(Location location, Integer radius, Cursor after, Integer limit, Locale locale) {
         List<Recommendation> recommendations = getJdbcTemplate().query(getQuery("Poi.findNearestWithHighRating"), 
                 (ResultSet rs, int i) -> {
                         Recommendation recommendation = new Recommendation();
@@ -56,67 +68,72 @@ public class RecommendationJdbcDao extends JdbcDao implements RecommendationDao
                         recommendation.setReason(Messages.get("recommendation.global.reason", locale));
                         recommendation.setPoi(poi);
                         return recommendation;
-                }, location.getLatitude(), location.getLongitude(), radius);
-        recommendations.forEach(recommendation -> recommendation.getPoi().setCategories(new HashSet<>(categoryDao.findByPoiFoursquareId(recommendation.getPoi().getFoursquareId(), locale))));
-        return recommendations;
+                }, location.getLatitude(), location.getLongitude(), radius, GeoCells.covering(location, radius), afterDistance(after), afterFoursquareId(after), limitOrAll(limit));
+        return withCategories(recommendations, locale);
     }
 
     @Override
-    public List<Recommendation> findNearestByCategoriesLiked(String accessToken, Location location, Integer radius, Locale locale) {
-        Set<String> categoryNames = new HashSet<>();
+    public List<Recommendation> findNearestByCategoriesLiked(String accessToken, Location location, Integer radius, Cursor after, Integer limit, Locale locale) {
         List<Recommendation> recommendations = getJdbcTemplate().query(getQuery("Recommendation.findNearestByCategoriesLiked", locale), 
                 (ResultSet rs, int i) -> {
-                    String categoryName = rs.getString(7);
-                    if (categoryNames.add(categoryName)) {
-                        Recommendation recommendation = new Recommendation();
-                        Poi poi = new Poi();
-                        int columnIndex = 1;
-                        poi.setId(rs.getLong(columnIndex++));
-                        poi.setName(rs.getString(columnIndex++));
-                        poi.setLocation(new Location());
-                        poi.getLocation().setLatitude(rs.getDouble(columnIndex++));
-                        poi.getLocation().setLongitude(rs.getDouble(columnIndex++));
-                        poi.setFoursquareId(rs.getString(columnIndex++));
-                        poi.setFoursquareRating(rs.getDouble(columnIndex++));
-                        recommendation.setType(Recommendation.Type.SELF);
-                        recommendation.setReason(Messages.get("recommendation.self.reason", locale, categoryName));
-                        recommendation.setPoi(poi);
-                        return recommendation;
-                    } else return null;
-                }, accessToken, location.getLatitude(), location.getLongitude(), radius);
-        recommendations = recommendations.stream().filter(Objects::nonNull).collect(Collectors.toList());
-        recommendations.forEach(recommendation -> recommendation.getPoi().setCategories(new HashSet<>(categoryDao.findByPoiFoursquareId(recommendation.getPoi().getFoursquareId(), locale))));
-        return recommendations;
+                    Recommendation recommendation = new Recommendation();
+                    Poi poi = new Poi();
+                    int columnIndex = 1;
+                    poi.setId(rs.getLong(columnIndex++));
+                    poi.setName(rs.getString(columnIndex++));
+                    poi.setLocation(new Location());
+                    poi.getLocation().setLatitude(rs.getDouble(columnIndex++));
+                    poi.getLocation().setLongitude(rs.getDouble(columnIndex++));
+                    poi.setFoursquareId(rs.getString(columnIndex++));
+                    poi.setFoursquareRating(rs.getDouble(columnIndex++));
+                    recommendation.setType(Recommendation.Type.SELF);
+                    recommendation.setReason(Messages.get("recommendation.self.reason", locale, rs.getString(columnIndex++)));
+                    recommendation.setPoi(poi);
+                    return recommendation;
+                }, accessToken, location.getLatitude(), location.getLongitude(), radius, GeoCells.covering(location, radius), afterDistance(after), afterFoursquareId(after), limitOrAll(limit));
+        return withCategories(recommendations, locale);
     }
 
     @Override
-    public List<Recommendation> findNearestByCategoriesLikedByFriends(String accessToken, Location location, Integer radius, Locale locale) {
-        Set<String> categoryNames = new HashSet<>();
+    public List<Recommendation> findNearestByCategoriesLikedByFriends(String accessToken, Location location, Integer radius, Cursor after, Integer limit, Locale locale) {
         List<Recommendation> recommendations = getJdbcTemplate().query(getQuery("Recommendation.findNearestByCategoriesLikedByFriends", locale), 
                 (ResultSet rs, int i) -> {
-                    String categoryName = rs.getString(9);
-                    if (categoryNames.add(categoryName)) {
-                        Recommendation recommendation = new Recommendation();
-                        Poi poi = new Poi();
-                        int columnIndex = 1;
-                        poi.setId(rs.getLong(columnIndex++));
-                        poi.setName(rs.getString(columnIndex++));
-                        poi.setLocation(new Location());
-                        poi.getLocation().setLatitude(rs.getDouble(columnIndex++));
-                        poi.getLocation().setLongitude(rs.getDouble(columnIndex++));
-                        poi.setFoursquareId(rs.getString(columnIndex++));
-                        poi.setFoursquareRating(rs.getDouble(columnIndex++));
-                        recommendation.setType(Recommendation.Type.SOCIAL);
-                        String friendFirstName = rs.getString(columnIndex++);
-                        String friendLastName = rs.getString(columnIndex++);
-                        String friendFullName = friendLastName == null || friendLastName.trim().isEmpty() ? friendFirstName : friendFirstName + " " +  friendLastName;
-                        recommendation.setReason(Messages.get("recommendation.social.reason", locale, friendFullName, categoryName));
-                        recommendation.setPoi(poi);
-                        return recommendation;
-                    } else return null;
-                }, accessToken, location.getLatitude(), location.getLongitude(), radius);
-        recommendations = recommendations.stream().filter(Objects::nonNull).collect(Collectors.toList());
-        recommendations.forEach(recommendation -> recommendation.getPoi().setCategories(new HashSet<>(categoryDao.findByPoiFoursquareId(recommendation.getPoi().getFoursquareId(), locale))));
+                    Recommendation recommendation = new Recommendation();
+                    Poi poi = new Poi();
+                    int columnIndex = 1;
+                    poi.setId(rs.getLong(columnIndex++));
+                    poi.setName(rs.getString(columnIndex++));
+                    poi.setLocation(new Location());
+                    poi.getLocation().setLatitude(rs.getDouble(columnIndex++));
+                    poi.getLocation().setLongitude(rs.getDouble(columnIndex++));
+                    poi.setFoursquareId(rs.getString(columnIndex++));
+                    poi.setFoursquareRating(rs.getDouble(columnIndex++));
+                    recommendation.setType(Recommendation.Type.SOCIAL);
+                    String friendFirstName = rs.getString(columnIndex++);
+                    String friendLastName = rs.getString(columnIndex++);
+                    String friendFullName = friendLastName == null || friendLastName.trim().isEmpty() ? friendFirstName : friendFirstName + " " +  friendLastName;
+                    recommendation.setReason(Messages.get("recommendation.social.reason", locale, friendFullName, rs.getString(columnIndex++)));
+                    recommendation.setPoi(poi);
+                    return recommendation;
+                }, accessToken, location.getLatitude(), location.getLongitude(), radius, GeoCells.covering(location, radius), afterDistance(after), afterFoursquareId(after), limitOrAll(limit));
+        return withCategories(recommendations, locale);
+    }
+
+    private double afterDistance(Cursor after) {
+        return after != null ? after.getDistance() : -1d;
+    }
+
+    private String afterFoursquareId(Cursor after) {
+        return after != null ? after.getFoursquareId() : "";
+    }
+
+    private int limitOrAll(Integer limit) {
+        return limit != null ? limit : Integer.MAX_VALUE;
+    }
+
+    private List<Recommendation> withCategories(List<Recommendation> recommendations, Locale locale) {
+        Map<String, Set<Category>> categoriesByPoi = categoryDao.findByPoiFoursquareIds(recommendations.stream().map(recommendation -> recommendation.getPoi().getFoursquareId()).collect(Collectors.toSet()), locale);
+        recommendations.forEach(recommendation -> recommendation.getPoi().setCategories(categoriesByPoi.getOrDefault(recommendation.getPoi().getFoursquareId(), new HashSet<>())));
         return recommendations;
     }
 }
\ No newline at end of file
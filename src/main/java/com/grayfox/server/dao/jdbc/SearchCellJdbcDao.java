@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+import com.grayfox.server.dao.SearchCellDao;
+import com.grayfox.server.domain.Location;
+import com.grayfox.server.domain.Poi;
+import com.grayfox.server.util.GeoCells;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+@Repository("searchCellLocalDao")
+public class SearchCellJdbcDao extends JdbcDao implements SearchCellDao {
+
+    private static final String SEARCH_LOCATION_FORMAT = "%.4f,%.4f";
+
+    @Inject private PoiJdbcDao poiDao;
+
+    @Value("${poi.search.ttl.millis}") private long ttlMillis;
+
+    @Override
+    public boolean isFresh(Location location, Integer radius, String categoryFoursquareId) {
+        List<Boolean> fresh = getJdbcTemplate().queryForList(getQuery("SearchCell.isFresh"), Boolean.class, GeoCells.encode(searchCenterOf(location)), categoryFoursquareId, location.getLatitude(), location.getLongitude(), radius, System.currentTimeMillis() - ttlMillis);
+        return !fresh.isEmpty();
+    }
+
+    @Override
+    public void save(Location location, Integer radius, String categoryFoursquareId, List<Poi> pois) {
+        Location searchCenter = searchCenterOf(location);
+        poiDao.saveAll(pois);
+        List<String> foursquareIds = new ArrayList<>(pois.size());
+        pois.forEach(poi -> foursquareIds.add(poi.getFoursquareId()));
+        getJdbcTemplate().update(getQuery("SearchCell.save"), GeoCells.encode(searchCenter), categoryFoursquareId, searchCenter.getLatitude(), searchCenter.getLongitude(), radius, System.currentTimeMillis(), foursquareIds);
+    }
+
+    // Same rounding as the ll sent to Foursquare, so lookups land in the cell the search was saved to
+    private Location searchCenterOf(Location location) {
+        return Location.parse(String.format(Locale.ROOT, SEARCH_LOCATION_FORMAT, location.getLatitude(), location.getLongitude()));
+    }
+}
\ No newline at end of file
@@ -15,15 +15,25 @@
  */
 package com.grayfox.server.dao.jdbc;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.grayfox.server.dao.DaoException;
 import com.grayfox.server.dao.UserDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.User;
+import com.grayfox.server.util.Diff;
+
+import com.google.common.hash.Hashing;
 
 import org.springframework.stereotype.Repository;
 
@@ -104,22 +114,38 @@ public class UserJdbcDao extends JdbcDao implements UserDao {
         return !exists.isEmpty();
     }
 
+    @Override
+    public Set<String> findExistingFoursquareIds(Collection<String> foursquareIds) {
+        if (foursquareIds.isEmpty()) return new HashSet<>();
+        return new HashSet<>(getJdbcTemplate().queryForList(getQuery("User.findExistingFoursquareIds"), String.class, new ArrayList<>(foursquareIds)));
+    }
+
+    @Override
+    public Set<String> findLikesSyncedFoursquareIds(Collection<String> foursquareIds, long syncedSince) {
+        if (foursquareIds.isEmpty()) return new HashSet<>();
+        return new HashSet<>(getJdbcTemplate().queryForList(getQuery("User.findLikesSyncedFoursquareIds"), String.class, new ArrayList<>(foursquareIds), syncedSince));
+    }
+
+    @Override
+    public Map<String, List<String>> findStaleFriendsFoursquareIds(long syncedBefore, int limit) {
+        Map<String, List<String>> staleFriends = new HashMap<>();
+        getJdbcTemplate().query(getQuery("User.findStaleFriends"), 
+                (ResultSet rs) -> {
+                    int columnIndex = 1;
+                    String foursquareAccessToken = rs.getString(columnIndex++);
+                    staleFriends.computeIfAbsent(foursquareAccessToken, key -> new ArrayList<>()).add(rs.getString(columnIndex++));
+                }, syncedBefore, limit, System.currentTimeMillis());
+        return staleFriends;
+    }
+
     @Override
     public void save(User user) {
-        getJdbcTemplate().update(getQuery("User.create"), user.getName(), user.getLastName(), user.getPhotoUrl(), user.getFoursquareId());
+        user.setId(getJdbcTemplate().queryForObject(getQuery("User.create"), Long.class, user.getName(), user.getLastName(), user.getPhotoUrl(), user.getFoursquareId()));
         if (user.getCredential() != null) getJdbcTemplate().update(getQuery("User.createHasRelationship"), user.getFoursquareId(), user.getCredential().getAccessToken());
-        if (user.getLikes() != null) user.getLikes().forEach(like -> saveLike(user.getFoursquareId(), like.getFoursquareId()));
-        if (user.getFriends() != null) {
-            user.getFriends().forEach(friend -> {
-                if (!exists(friend.getFoursquareId())) {
-                    getJdbcTemplate().update(getQuery("User.create"), friend.getName(), friend.getLastName(), friend.getPhotoUrl(), friend.getFoursquareId());
-                    getJdbcTemplate().update(getQuery("User.createFriendsRelationship"), user.getFoursquareId(), friend.getFoursquareId());
-                    if (friend.getLikes() != null) friend.getLikes().forEach(like -> saveLike(friend.getFoursquareId(), like.getFoursquareId()));
-                    friend.setId(findIdByFoursquareId(friend.getFoursquareId()));
-                } else getJdbcTemplate().update(getQuery("User.createFriendsRelationship"), user.getFoursquareId(), friend.getFoursquareId());
-            });
-        }
-        user.setId(findIdByFoursquareId(user.getFoursquareId()));
+        List<Map<String, Object>> likes = new ArrayList<>();
+        if (user.getLikes() != null) addLikes(likes, user.getFoursquareId(), user.getLikes());
+        if (user.getFriends() != null) saveFriends(user.getFoursquareId(), user.getFriends(), likes);
+        saveLikes(likes);
     }
 
     @Override
@@ -129,29 +155,18 @@ public class UserJdbcDao extends JdbcDao implements UserDao {
             getJdbcTemplate().update(getQuery("Credential.delete"), user.getFoursquareId());
             getJdbcTemplate().update(getQuery("User.createHasRelationship"), user.getFoursquareId(), user.getCredential().getAccessToken());
         }
+        List<Map<String, Object>> likes = new ArrayList<>();
         if (user.getFriends() != null) {
-            List<String> oldFriendsIds = fetchFriendsIds(user.getFoursquareId());
-            List<String> intersection = user.getFriends().stream().filter(friend -> oldFriendsIds.contains(friend.getFoursquareId())).map(User::getFoursquareId).collect(Collectors.toList());
-            List<User> newFriends = user.getFriends().stream().filter(friend -> !intersection.contains(friend.getFoursquareId())).collect(Collectors.toList());
-            oldFriendsIds.removeAll(intersection);
-            oldFriendsIds.forEach(friendFoursquareId -> getJdbcTemplate().update(getQuery("User.deleteFriendsRelationship"), user.getFoursquareId(), friendFoursquareId));
-            newFriends.forEach(friend -> {
-                if (!exists(friend.getFoursquareId())) {
-                    getJdbcTemplate().update(getQuery("User.create"), friend.getName(), friend.getLastName(), friend.getPhotoUrl(), friend.getFoursquareId());
-                    getJdbcTemplate().update(getQuery("User.createFriendsRelationship"), user.getFoursquareId(), friend.getFoursquareId());
-                    if (friend.getLikes() != null) friend.getLikes().forEach(like -> saveLike(friend.getFoursquareId(), like.getFoursquareId()));
-                    friend.setId(findIdByFoursquareId(friend.getFoursquareId()));
-                } else getJdbcTemplate().update(getQuery("User.createFriendsRelationship"), user.getFoursquareId(), friend.getFoursquareId());
-            });
+            Diff<String> friendsDiff = Diff.between(fetchFriendsIds(user.getFoursquareId()), user.getFriends().stream().map(User::getFoursquareId).collect(Collectors.toSet()));
+            if (!friendsDiff.getRemoved().isEmpty()) getJdbcTemplate().update(getQuery("User.deleteFriendsRelationships"), user.getFoursquareId(), new ArrayList<>(friendsDiff.getRemoved()));
+            saveFriends(user.getFoursquareId(), user.getFriends().stream().filter(friend -> friendsDiff.getAdded().contains(friend.getFoursquareId())).collect(Collectors.toList()), likes);
         }
         if (user.getLikes() != null) {
-            List<String> oldLikesIds = fetchLikesIds(user.getFoursquareId());
-            List<String> intersection = user.getLikes().stream().filter(like -> oldLikesIds.contains(like.getFoursquareId())).map(Category::getFoursquareId).collect(Collectors.toList());
-            List<Category> newLikes = user.getLikes().stream().filter(like -> !intersection.contains(like.getFoursquareId())).collect(Collectors.toList());
-            oldLikesIds.removeAll(intersection);
-            oldLikesIds.forEach(likeFoursquareId -> getJdbcTemplate().update(getQuery("User.deleteLikesRelationship"), user.getFoursquareId(), likeFoursquareId));
-            newLikes.forEach(like -> saveLike(user.getFoursquareId(), like.getFoursquareId()));
+            Diff<String> likesDiff = Diff.between(fetchLikesIds(user.getFoursquareId()), user.getLikes().stream().map(Category::getFoursquareId).collect(Collectors.toSet()));
+            if (!likesDiff.getRemoved().isEmpty()) getJdbcTemplate().update(getQuery("User.deleteLikesRelationships"), user.getFoursquareId(), new ArrayList<>(likesDiff.getRemoved()));
+            addLikes(likes, user.getFoursquareId(), user.getLikes().stream().filter(like -> likesDiff.getAdded().contains(like.getFoursquareId())).collect(Collectors.toList()));
         }
+        saveLikes(likes);
     }
 
     @Override
@@ -159,11 +174,105 @@ public class UserJdbcDao extends JdbcDao implements UserDao {
         getJdbcTemplate().update(getQuery("User.createLikesRelationship"), foursquareId, categoryFoursquareI);
     }
 
+    @Override
+    public int syncLikes(Map<String, Set<Category>> likesByFoursquareId) {
+        if (likesByFoursquareId.isEmpty()) return 0;
+        Map<String, String> storedHashes = new HashMap<>();
+        getJdbcTemplate().query(getQuery("User.findLikesHashes"), 
+                (ResultSet rs) -> {
+                    int columnIndex = 1;
+                    storedHashes.put(rs.getString(columnIndex++), rs.getString(columnIndex++));
+                }, new ArrayList<>(likesByFoursquareId.keySet()));
+        List<String> unchanged = new ArrayList<>();
+        Map<String, String> changedHashes = new HashMap<>();
+        likesByFoursquareId.forEach((foursquareId, categories) -> {
+            String likesHash = likesHash(categories);
+            if (likesHash.equals(storedHashes.get(foursquareId))) unchanged.add(foursquareId);
+            else changedHashes.put(foursquareId, likesHash);
+        });
+        Map<String, List<String>> storedLikesIds = fetchLikesIds(changedHashes.keySet());
+        List<Map<String, Object>> changed = new ArrayList<>();
+        List<Map<String, Object>> removedLikes = new ArrayList<>();
+        List<Map<String, Object>> likes = new ArrayList<>();
+        changedHashes.forEach((foursquareId, likesHash) -> {
+            Set<Category> categories = likesByFoursquareId.get(foursquareId);
+            Diff<String> likesDiff = Diff.between(storedLikesIds.getOrDefault(foursquareId, new ArrayList<>()), categories.stream().map(Category::getFoursquareId).collect(Collectors.toSet()));
+            if (!likesDiff.getRemoved().isEmpty()) {
+                Map<String, Object> removed = new HashMap<>();
+                removed.put("foursquareId", foursquareId);
+                removed.put("categoryFoursquareIds", new ArrayList<>(likesDiff.getRemoved()));
+                removedLikes.add(removed);
+            }
+            addLikes(likes, foursquareId, categories.stream().filter(like -> likesDiff.getAdded().contains(like.getFoursquareId())).collect(Collectors.toList()));
+            Map<String, Object> user = new HashMap<>();
+            user.put("foursquareId", foursquareId);
+            user.put("likesHash", likesHash);
+            changed.add(user);
+        });
+        if (!removedLikes.isEmpty()) getJdbcTemplate().update(getQuery("User.deleteLikesRelationshipsBatch"), removedLikes);
+        saveLikes(likes);
+        long syncedAt = System.currentTimeMillis();
+        if (!changed.isEmpty()) getJdbcTemplate().update(getQuery("User.updateLikesHashes"), changed, syncedAt);
+        if (!unchanged.isEmpty()) getJdbcTemplate().update(getQuery("User.touchLikes"), unchanged, syncedAt);
+        return changed.size();
+    }
+
+    @Override
+    public void deferLikes(Collection<String> foursquareIds, long retryAt) {
+        if (!foursquareIds.isEmpty()) getJdbcTemplate().update(getQuery("User.deferLikes"), new ArrayList<>(foursquareIds), retryAt);
+    }
+
     @Override
     public void deleteLike(String foursquareId, String categoryFoursquareI) {
         getJdbcTemplate().update(getQuery("User.deleteLikesRelationship"), foursquareId, categoryFoursquareI);
     }
 
+    private void saveFriends(String userFoursquareId, Collection<User> friends, List<Map<String, Object>> likes) {
+        if (friends.isEmpty()) return;
+        Set<String> existingFriendsIds = findExistingFoursquareIds(friends.stream().map(User::getFoursquareId).collect(Collectors.toList()));
+        Map<String, User> newFriends = new HashMap<>();
+        List<Map<String, Object>> newFriendsProperties = new ArrayList<>();
+        friends.stream()
+            .filter(friend -> !existingFriendsIds.contains(friend.getFoursquareId()))
+            .forEach(friend -> {
+                newFriends.put(friend.getFoursquareId(), friend);
+                Map<String, Object> properties = new HashMap<>();
+                properties.put("name", friend.getName());
+                properties.put("lastName", friend.getLastName());
+                properties.put("photoUrl", friend.getPhotoUrl());
+                properties.put("foursquareId", friend.getFoursquareId());
+                newFriendsProperties.add(properties);
+                if (friend.getLikes() != null) addLikes(likes, friend.getFoursquareId(), friend.getLikes());
+            });
+        if (!newFriendsProperties.isEmpty()) {
+            getJdbcTemplate().query(getQuery("User.createFriends"), 
+                    (ResultSet rs) -> {
+                        int columnIndex = 1;
+                        User friend = newFriends.get(rs.getString(columnIndex++));
+                        friend.setId(rs.getLong(columnIndex++));
+                    }, userFoursquareId, newFriendsProperties);
+        }
+        if (!existingFriendsIds.isEmpty()) getJdbcTemplate().update(getQuery("User.createFriendsRelationships"), userFoursquareId, new ArrayList<>(existingFriendsIds));
+    }
+
+    private void addLikes(List<Map<String, Object>> likes, String userFoursquareId, Collection<Category> categories) {
+        categories.forEach(category -> {
+            Map<String, Object> like = new HashMap<>();
+            like.put("userFoursquareId", userFoursquareId);
+            like.put("categoryFoursquareId", category.getFoursquareId());
+            likes.add(like);
+        });
+    }
+
+    private void saveLikes(List<Map<String, Object>> likes) {
+        if (!likes.isEmpty()) getJdbcTemplate().update(getQuery("User.createLikesRelationships"), likes);
+    }
+
+    private String likesHash(Collection<Category> categories) {
+        String likesIds = categories.stream().map(Category::getFoursquareId).sorted().distinct().collect(Collectors.joining(","));
+        return Hashing.sha1().hashString(likesIds, StandardCharsets.UTF_8).toString();
+    }
+
     private List<String> fetchFriendsIds(String foursquareId) {
         return getJdbcTemplate().queryForList(getQuery("User.findFriendsFoursquareIdsByUserFoursquareId"), String.class, foursquareId);
     }
@@ -172,7 +281,14 @@ public class UserJdbcDao extends JdbcDao implements UserDao {
         return getJdbcTemplate().queryForList(getQuery("User.findLikesFoursquareIdsByUserFoursquareId"), String.class, foursquareId);
     }
 
-    private Long findIdByFoursquareId (String foursquareId) {
-        return getJdbcTemplate().queryForObject(getQuery("User.findIdByFoursquareId"), Long.class, foursquareId);
+    private Map<String, List<String>> fetchLikesIds(Collection<String> foursquareIds) {
+        Map<String, List<String>> likesIds = new HashMap<>();
+        if (foursquareIds.isEmpty()) return likesIds;
+        getJdbcTemplate().query(getQuery("User.findLikesFoursquareIdsByUserFoursquareIds"), 
+                (ResultSet rs) -> {
+                    int columnIndex = 1;
+                    likesIds.computeIfAbsent(rs.getString(columnIndex++), key -> new ArrayList<>()).add(rs.getString(columnIndex++));
+                }, new ArrayList<>(foursquareIds));
+        return likesIds;
     }
 }
\ No newline at end of file
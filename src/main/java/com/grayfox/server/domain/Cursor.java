@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.domain;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+
+public class Cursor implements Comparable<Cursor>, Serializable {
+
+    private static final long serialVersionUID = -3471953215385406287L;
+    private static final Comparator<String> ID_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final double distance;
+    private final String foursquareId;
+
+    public Cursor(double distance, String foursquareId) {
+        this.distance = distance;
+        this.foursquareId = foursquareId;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public String getFoursquareId() {
+        return foursquareId;
+    }
+
+    public String stringValue() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((distance + "," + foursquareId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor parse(String cursorString) {
+        if (cursorString == null) {
+            throw new DomainException.Builder()
+                .messageKey("cursor.is_null.error")
+                .build();
+        }
+        try {
+            String[] distanceId = new String(Base64.getUrlDecoder().decode(cursorString), StandardCharsets.UTF_8).split(",", 2);
+            if (distanceId.length != 2 || distanceId[1].isEmpty()) {
+                throw new DomainException.Builder()
+                    .messageKey("cursor.format.error")
+                    .addMessageArgument(cursorString)
+                    .build();
+            }
+            return new Cursor(Double.parseDouble(distanceId[0]), distanceId[1]);
+        } catch (IllegalArgumentException ex) {
+            throw new DomainException.Builder()
+                .messageKey("cursor.format.error")
+                .addMessageArgument(cursorString)
+                .cause(ex)
+                .build();
+        }
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+        int byDistance = Double.compare(distance, other.distance);
+        return byDistance != 0 ? byDistance : ID_ORDER.compare(foursquareId, other.foursquareId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(distance, foursquareId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        Cursor other = (Cursor) obj;
+        return Objects.equals(distance, other.distance) &&
+               Objects.equals(foursquareId, other.foursquareId);
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor [distance=" + distance + ", foursquareId=" + foursquareId + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.domain;
+
+import java.util.List;
+import java.util.Objects;
+
+public class Page<T> {
+
+    private final List<T> items;
+    private final Cursor nextCursor;
+
+    public Page(List<T> items, Cursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, nextCursor);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        Page<?> other = (Page<?>) obj;
+        return Objects.equals(items, other.items) &&
+               Objects.equals(nextCursor, other.nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "Page [items=" + items + ", nextCursor=" + nextCursor + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.domain;
+
+import java.util.List;
+import java.util.Objects;
+
+public class ProfileJob extends Entity<Long> {
+
+    private String accessToken;
+    private String foursquareAccessToken;
+    private String userFoursquareId;
+    private List<String> pendingFriendFoursquareIds;
+    private int attempts;
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public String getFoursquareAccessToken() {
+        return foursquareAccessToken;
+    }
+
+    public void setFoursquareAccessToken(String foursquareAccessToken) {
+        this.foursquareAccessToken = foursquareAccessToken;
+    }
+
+    public String getUserFoursquareId() {
+        return userFoursquareId;
+    }
+
+    public void setUserFoursquareId(String userFoursquareId) {
+        this.userFoursquareId = userFoursquareId;
+    }
+
+    public List<String> getPendingFriendFoursquareIds() {
+        return pendingFriendFoursquareIds;
+    }
+
+    public void setPendingFriendFoursquareIds(List<String> pendingFriendFoursquareIds) {
+        this.pendingFriendFoursquareIds = pendingFriendFoursquareIds;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accessToken, foursquareAccessToken, userFoursquareId, pendingFriendFoursquareIds, attempts);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!super.equals(obj)) return false;
+        if (getClass() != obj.getClass()) return false;
+        ProfileJob other = (ProfileJob) obj;
+        return Objects.equals(accessToken, other.accessToken) &&
+               Objects.equals(foursquareAccessToken, other.foursquareAccessToken) &&
+               Objects.equals(userFoursquareId, other.userFoursquareId) &&
+               Objects.equals(pendingFriendFoursquareIds, other.pendingFriendFoursquareIds) &&
+               Objects.equals(attempts, other.attempts);
+    }
+
+    @Override
+    public String toString() {
+        return "ProfileJob [id=" + getId() + ", accessToken=" + accessToken + ", userFoursquareId=" + userFoursquareId + ", pendingFriendFoursquareIds=" + pendingFriendFoursquareIds + ", attempts=" + attempts + "]";
+    }
+}
\ No newline at end of file
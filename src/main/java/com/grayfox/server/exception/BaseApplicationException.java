@@ -25,12 +25,21 @@ public abstract class BaseApplicationException extends RuntimeException {
     private static final long serialVersionUID = 4065199814273911926L;
 
     private final BaseBuilder<? extends BaseApplicationException> builder;
+    private transient volatile String formattedMessage;
 
     protected BaseApplicationException(BaseBuilder<? extends BaseApplicationException> builder) {
-        super(builder.messageKey != null ? Messages.get(builder.messageKey, builder.messageArguments.toArray()) : builder.message, builder.cause);
+        super(builder.message, builder.cause, true, builder.stackTraceEnabled);
         this.builder = builder;
     }
 
+    @Override
+    public String getMessage() {
+        if (builder.messageKey == null) return super.getMessage();
+        String message = formattedMessage;
+        if (message == null) formattedMessage = message = Messages.get(builder.messageKey, builder.messageArguments.toArray());
+        return message;
+    }
+
     public String getMessageKey() {
         return builder.messageKey;
     }
@@ -39,15 +48,21 @@ public abstract class BaseApplicationException extends RuntimeException {
         return builder.messageArguments.toArray();
     }
 
+    public boolean hasMessageArguments() {
+        return !builder.messageArguments.isEmpty();
+    }
+
     public static abstract class BaseBuilder<T extends BaseApplicationException> {
 
         private String message;
         private String messageKey;
         private List<Object> messageArguments;
         private Throwable cause;
+        private boolean stackTraceEnabled;
 
         protected BaseBuilder() {
             messageArguments = new ArrayList<>();
+            stackTraceEnabled = true;
         }
 
         public BaseBuilder<T> message(String message) {
@@ -70,6 +85,11 @@ public abstract class BaseApplicationException extends RuntimeException {
             return this;
         }
 
+        public BaseBuilder<T> withoutStackTrace() {
+            this.stackTraceEnabled = false;
+            return this;
+        }
+
         public abstract T build();
     }
 }
\ No newline at end of file
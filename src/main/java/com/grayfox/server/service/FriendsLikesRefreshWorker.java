@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.grayfox.server.dao.SocialNetworkProfileDao;
+import com.grayfox.server.domain.Category;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FriendsLikesRefreshWorker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FriendsLikesRefreshWorker.class);
+
+    @Inject private UserService userService;
+    @Inject @Named("foursquareProfileDao") private SocialNetworkProfileDao foursquareProfileDao;
+
+    @Value("${profile.likes.refresh.batch.size}") private int batchSize;
+
+    @Scheduled(fixedDelayString = "${profile.likes.refresh.delay}", initialDelayString = "${profile.likes.refresh.delay}")
+    public void refresh() {
+        int refreshed = 0;
+        int changed = 0;
+        for (Map.Entry<String, List<String>> staleFriends : userService.getFriendsWithStaleLikes(batchSize).entrySet()) {
+            try {
+                Map<String, Set<Category>> friendsLikes = foursquareProfileDao.collectFriendsLikes(staleFriends.getKey(), staleFriends.getValue());
+                List<String> failedFriendsIds = staleFriends.getValue().stream().filter(friendFoursquareId -> !friendsLikes.containsKey(friendFoursquareId)).collect(Collectors.toList());
+                changed += userService.syncFriendsLikes(friendsLikes, failedFriendsIds);
+                refreshed += friendsLikes.size();
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Can't refresh the likes of {} friends", staleFriends.getValue().size(), ex);
+            }
+        }
+        if (refreshed > 0) LOGGER.info("Likes refreshed for {} friends, {} changed", refreshed, changed);
+    }
+}
\ No newline at end of file
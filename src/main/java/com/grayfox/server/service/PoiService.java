@@ -16,11 +16,20 @@
 package com.grayfox.server.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -29,15 +38,19 @@ import com.grayfox.server.dao.CategoryDao;
 import com.grayfox.server.dao.CredentialDao;
 import com.grayfox.server.dao.PoiDao;
 import com.grayfox.server.dao.RecommendationDao;
+import com.grayfox.server.dao.SearchCellDao;
 import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.Cursor;
 import com.grayfox.server.domain.Location;
+import com.grayfox.server.domain.Page;
 import com.grayfox.server.domain.Poi;
 import com.grayfox.server.domain.Recommendation;
-import com.grayfox.server.util.Constants;
+import com.grayfox.server.util.DistanceRanker;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -50,16 +63,34 @@ public class PoiService {
     @Inject private CredentialDao credentialDao;
     @Inject private CategoryDao categoryDao;
     @Inject private RecommendationDao recommendationDao;
+    @Inject private SearchCellDao searchCellDao;
     @Inject @Named("poiFoursquareDao") private PoiDao poiFoursquareDao;
     @Inject @Named("poiLocalDao")      private PoiDao poiLocalDao;
+    @Inject @Named("recommendationExecutor") private ExecutorService recommendationExecutor;
+
+    @Value("${poi.next.enabled}")                     private boolean localGraphEnabled;
+    @Value("${poi.search.enabled}")                   private boolean localSearchEnabled;
+    @Value("${recommendation.concurrent}")            private boolean concurrent;
+    @Value("${recommendation.self.timeout.millis}")   private long selfTimeoutMillis;
+    @Value("${recommendation.social.timeout.millis}") private long socialTimeoutMillis;
+    @Value("${recommendation.global.timeout.millis}") private long globalTimeoutMillis;
 
     @Transactional(readOnly = true)
-    public List<Poi> getNearestPoisByCategory(Location location, int radius, String categoryFoursquareId, Locale locale) {
-        return poiFoursquareDao.findNearestByCategory(location, radius, categoryFoursquareId, locale);
+    public Page<Poi> getNearestPoisByCategory(Location location, int radius, String categoryFoursquareId, Cursor after, Integer limit, Locale locale) {
+        DistanceRanker ranker = new DistanceRanker(location);
+        List<Poi> pois;
+        if (localSearchEnabled && searchCellDao.isFresh(location, radius, categoryFoursquareId)) pois = poiLocalDao.findNearestByCategory(location, radius, categoryFoursquareId, locale);
+        else pois = poiFoursquareDao.findNearestByCategory(location, radius, categoryFoursquareId, locale);
+        return toPage(ranker, ranker.nearest(pois, Poi::getLocation, Poi::getFoursquareId, after, rankLimitOf(limit)), Poi::getLocation, Poi::getFoursquareId, limit, null);
     }
 
     @Transactional(readOnly = true)
     public List<Poi> buildRoute(String poiFoursquareId, Locale locale) {
+        if (localGraphEnabled) {
+            List<Poi> pois = poiLocalDao.findNext(poiFoursquareId, MAX_POIS_PER_ROUTE, locale);
+            if (!pois.isEmpty()) return pois;
+            LOGGER.debug("No fresh local route from [{}], requesting Foursquare", poiFoursquareId);
+        }
         return poiFoursquareDao.findNext(poiFoursquareId, MAX_POIS_PER_ROUTE, locale);
     }
 
@@ -69,24 +100,50 @@ public class PoiService {
     }
 
     @Transactional(readOnly = true)
-    public List<Recommendation> recommend(String accessToken, Location location, int radius, Locale locale) {
+    public Page<Recommendation> recommend(String accessToken, Location location, int radius, Cursor after, Integer limit, Locale locale) {
         Set<String> categories = new HashSet<>();
-        List<Recommendation> recommendations = new ArrayList<>();
+        List<List<Recommendation>> sources = new ArrayList<>(3);
         if (accessToken != null) {
             LOGGER.debug("Adding personalized recommendations...");
             if (!credentialDao.exists(accessToken)) {
                 LOGGER.warn("Not existing user attempting to retrive information");
                 throw new ServiceException.Builder()
                     .messageKey("user.invalid.error")
+                    .withoutStackTrace()
                     .build();
             }
-            List<Recommendation> recommendationsByCategoriesLiked = recommendationDao.findNearestByCategoriesLiked(accessToken, location, radius, locale);
-            List<Recommendation> recommendationsByCategoriesLikedByFriends = recommendationDao.findNearestByCategoriesLikedByFriends(accessToken, location, radius, locale);
-            recommendations.addAll(recommendationsByCategoriesLiked);
-            recommendations.addAll(recommendationsByCategoriesLikedByFriends);
         } else LOGGER.debug("Only global recommendations...");
-        List<Recommendation> recommendationsByRating = recommendationDao.findNearestWithHighRating(location, radius, locale);
-        recommendations.addAll(recommendationsByRating);
+        if (concurrent) {
+            long startTime = System.currentTimeMillis();
+            Future<List<Recommendation>> recommendationsByCategoriesLiked = accessToken != null ? submit(() -> recommendationDao.findNearestByCategoriesLiked(accessToken, location, radius, after, limit, locale), Recommendation.Type.SELF) : null;
+            Future<List<Recommendation>> recommendationsByCategoriesLikedByFriends = accessToken != null ? submit(() -> recommendationDao.findNearestByCategoriesLikedByFriends(accessToken, location, radius, after, limit, locale), Recommendation.Type.SOCIAL) : null;
+            Future<List<Recommendation>> recommendationsByRating = submit(() -> recommendationDao.findNearestWithHighRating(location, radius, after, limit, locale), Recommendation.Type.GLOBAL);
+            if (accessToken != null) {
+                sources.add(await(recommendationsByCategoriesLiked, startTime, selfTimeoutMillis, Recommendation.Type.SELF));
+                sources.add(await(recommendationsByCategoriesLikedByFriends, startTime, socialTimeoutMillis, Recommendation.Type.SOCIAL));
+            }
+            sources.add(await(recommendationsByRating, startTime, globalTimeoutMillis, Recommendation.Type.GLOBAL));
+        } else {
+            if (accessToken != null) {
+                sources.add(recommendationDao.findNearestByCategoriesLiked(accessToken, location, radius, after, limit, locale));
+                sources.add(recommendationDao.findNearestByCategoriesLikedByFriends(accessToken, location, radius, after, limit, locale));
+            }
+            sources.add(recommendationDao.findNearestWithHighRating(location, radius, after, limit, locale));
+        }
+        DistanceRanker ranker = new DistanceRanker(location);
+        Function<Recommendation, Location> locator = recommendation -> recommendation.getPoi().getLocation();
+        Function<Recommendation, String> identifier = recommendation -> recommendation.getPoi().getFoursquareId();
+        Cursor horizon = null;
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (List<Recommendation> source : sources) {
+            recommendations.addAll(source);
+            if (limit != null && source.size() >= limit) {
+                Cursor sourceEnd = source.stream().map(recommendation -> ranker.cursorOf(locator.apply(recommendation), identifier.apply(recommendation))).max(Cursor::compareTo).get();
+                if (horizon == null || sourceEnd.compareTo(horizon) < 0) horizon = sourceEnd;
+            }
+        }
+        // Categories are deduped within the fetched page only: a category already returned before the
+        // cursor may show up again, and a source skipped on this page doesn't replay its earlier items
         for (Iterator<Recommendation> iterator = recommendations.iterator(); iterator.hasNext();) {
             Recommendation recommendation = iterator.next();
             for (Category category : recommendation.getPoi().getCategories()) {
@@ -96,18 +153,49 @@ public class PoiService {
                 }
             }
         }
-        recommendations.sort((r1, r2) -> {
-            double distance1 = distanceBetween(location, r1.getPoi().getLocation());
-            double distance2 = distanceBetween(location, r2.getPoi().getLocation());
-            return distance1 > distance2 ? 1 : distance1 < distance2 ? -1 : 0;
-        });
-        return recommendations;
+        if (horizon != null) {
+            Cursor end = horizon;
+            recommendations.removeIf(recommendation -> ranker.cursorOf(locator.apply(recommendation), identifier.apply(recommendation)).compareTo(end) > 0);
+        }
+        return toPage(ranker, ranker.nearest(recommendations, locator, identifier, after, rankLimitOf(limit)), locator, identifier, limit, horizon);
     }
 
-    private double distanceBetween(Location location1, Location location2) {
-        double fi1 = Math.toRadians(location1.getLatitude());
-        double fi2 = Math.toRadians(location2.getLatitude());
-        double deltaLambda = Math.toRadians(location2.getLongitude()-location1.getLongitude());
-        return Math.acos(Math.sin(fi1)*Math.sin(fi2) + Math.cos(fi1)*Math.cos(fi2)*Math.cos(deltaLambda)) * Constants.Ints.EARTH_RADIUS; 
+    // One extra row tells whether there is a next page
+    private int rankLimitOf(Integer limit) {
+        if (limit == null) return Integer.MAX_VALUE;
+        return limit < Integer.MAX_VALUE ? limit + 1 : limit;
+    }
+
+    private <T> Page<T> toPage(DistanceRanker ranker, List<T> ranked, Function<T, Location> locator, Function<T, String> identifier, Integer limit, Cursor horizon) {
+        if (limit != null && ranked.size() > limit) {
+            T last = ranked.get(limit - 1);
+            return new Page<>(new ArrayList<>(ranked.subList(0, limit)), ranker.cursorOf(locator.apply(last), identifier.apply(last)));
+        }
+        return new Page<>(ranked, horizon);
+    }
+
+    private Future<List<Recommendation>> submit(Callable<List<Recommendation>> source, Recommendation.Type type) {
+        try {
+            return recommendationExecutor.submit(source);
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Recommendation executor is saturated, skipping {} recommendations", type);
+            return null;
+        }
+    }
+
+    private List<Recommendation> await(Future<List<Recommendation>> future, long startTime, long timeoutMillis, Recommendation.Type type) {
+        if (future == null) return Collections.emptyList();
+        try {
+            return future.get(Math.max(startTime + timeoutMillis - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            LOGGER.warn("{} recommendations timed out after {} ms, skipping them", type, timeoutMillis);
+        } catch (ExecutionException ex) {
+            LOGGER.error("{} recommendations failed, skipping them", type, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for {} recommendations", type);
+        }
+        return Collections.emptyList();
     }
 }
\ No newline at end of file
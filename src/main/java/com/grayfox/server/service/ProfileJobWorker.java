@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.grayfox.server.dao.ProfileJobDao;
+import com.grayfox.server.dao.SocialNetworkProfileDao;
+import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.ProfileJob;
+import com.grayfox.server.domain.User;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProfileJobWorker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileJobWorker.class);
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    @Inject private ProfileJobDao profileJobDao;
+    @Inject private UserService userService;
+    @Inject @Named("foursquareProfileDao") private SocialNetworkProfileDao foursquareProfileDao;
+    @Inject @Named("profileJobExecutor")   private Executor profileJobExecutor;
+
+    @Value("${profile.job.batch.size}")         private int batchSize;
+    @Value("${profile.job.lease.millis}")       private long leaseMillis;
+    @Value("${profile.job.max.attempts}")       private int maxAttempts;
+    @Value("${profile.job.backoff.millis}")     private long backoffMillis;
+    @Value("${profile.job.checkpoint.friends}") private int checkpointFriends;
+
+    @Scheduled(fixedDelayString = "${profile.job.poll.delay}")
+    public void poll() {
+        for (ProfileJob job : profileJobDao.claim(batchSize, leaseMillis)) {
+            try {
+                profileJobExecutor.execute(() -> process(job));
+            } catch (RejectedExecutionException ex) {
+                LOGGER.warn("Profile job [{}] rejected, it will be retried when its lease expires", job.getId());
+            }
+        }
+    }
+
+    protected void process(ProfileJob job) {
+        try {
+            if (job.getAttempts() > maxAttempts) {
+                LOGGER.error("Profile job [{}] discarded after {} attempts", job.getId(), job.getAttempts() - 1);
+                profileJobDao.delete(job);
+                return;
+            }
+            if (job.getUserFoursquareId() == null) {
+                User user = foursquareProfileDao.collectProfile(job.getFoursquareAccessToken());
+                if (!userService.saveProfile(job, user, leaseMillis)) {
+                    LOGGER.warn("Profile job [{}] lease expired, leaving it to its new owner", job.getId());
+                    return;
+                }
+            }
+            List<String> pendingFriendFoursquareIds = job.getPendingFriendFoursquareIds() != null ? new ArrayList<>(job.getPendingFriendFoursquareIds()) : new ArrayList<>();
+            List<String> failedFriendFoursquareIds = new ArrayList<>();
+            while (!pendingFriendFoursquareIds.isEmpty()) {
+                List<String> chunk = new ArrayList<>(pendingFriendFoursquareIds.subList(0, Math.min(checkpointFriends, pendingFriendFoursquareIds.size())));
+                pendingFriendFoursquareIds = new ArrayList<>(pendingFriendFoursquareIds.subList(chunk.size(), pendingFriendFoursquareIds.size()));
+                Map<String, Set<Category>> friendsLikes = foursquareProfileDao.collectFriendsLikes(job.getFoursquareAccessToken(), chunk);
+                chunk.stream().filter(friendFoursquareId -> !friendsLikes.containsKey(friendFoursquareId)).forEach(failedFriendFoursquareIds::add);
+                List<String> remainingFriendFoursquareIds = new ArrayList<>(pendingFriendFoursquareIds);
+                remainingFriendFoursquareIds.addAll(failedFriendFoursquareIds);
+                if (!userService.saveFriendsLikes(job, friendsLikes, remainingFriendFoursquareIds, leaseMillis)) {
+                    LOGGER.warn("Profile job [{}] lease expired, leaving it to its new owner", job.getId());
+                    return;
+                }
+            }
+            if (!failedFriendFoursquareIds.isEmpty() && job.getAttempts() < maxAttempts) {
+                LOGGER.debug("Profile job [{}] left {} friends pending", job.getId(), failedFriendFoursquareIds.size());
+                profileJobDao.release(job, backoffMillis(job));
+            } else {
+                if (!failedFriendFoursquareIds.isEmpty()) LOGGER.warn("Profile job [{}] finished without the likes of {} friends", job.getId(), failedFriendFoursquareIds.size());
+                profileJobDao.delete(job);
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Profile job [{}] failed on attempt {}", job.getId(), job.getAttempts(), ex);
+            try {
+                profileJobDao.release(job, backoffMillis(job));
+            } catch (DataAccessException releaseEx) {
+                LOGGER.warn("Can't release profile job [{}], it will be retried when its lease expires", job.getId(), releaseEx);
+            }
+        }
+    }
+
+    private long backoffMillis(ProfileJob job) {
+        return backoffMillis << Math.min(Math.max(job.getAttempts() - 1, 0), MAX_BACKOFF_SHIFT);
+    }
+}
\ No newline at end of file
@@ -15,25 +15,31 @@
  */
 package com.grayfox.server.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import com.grayfox.server.dao.CredentialDao;
-import com.grayfox.server.dao.SocialNetworkProfileDao;
+import com.grayfox.server.dao.ProfileJobDao;
 import com.grayfox.server.dao.UserDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Credential;
+import com.grayfox.server.domain.ProfileJob;
 import com.grayfox.server.domain.User;
 import com.grayfox.server.oauth.SocialNetworkAuthenticator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -44,8 +50,11 @@ public class UserService {
 
     @Inject private UserDao userDao;
     @Inject private CredentialDao credentialDao;
+    @Inject private ProfileJobDao profileJobDao;
     @Inject @Named("foursquareAuthenticator") private SocialNetworkAuthenticator foursquareAuthenticator;
-    @Inject @Named("foursquareProfileDao")    private SocialNetworkProfileDao foursquareProfileDao;
+
+    @Value("${profile.likes.ttl.millis}") private long likesTtlMillis;
+    @Value("${profile.likes.retry.millis}") private long likesRetryMillis;
 
     @Transactional
     public Credential registerUsingFoursquare(String authorizationCode) {
@@ -60,18 +69,47 @@ public class UserService {
             credential.setAccessToken(generateAccessToken());
             credential.setNew(true);
             credentialDao.save(credential);
-            LOGGER.debug("New credential created");
+            ProfileJob job = new ProfileJob();
+            job.setAccessToken(credential.getAccessToken());
+            job.setFoursquareAccessToken(accessToken);
+            profileJobDao.save(job);
+            LOGGER.debug("New credential created and profile job enqueued");
             return credential;
         }
     }
 
-    @Async
     @Transactional
-    public void generateProfileUsingFoursquare(Credential credential) {
-        User user = foursquareProfileDao.collectUserData(credential.getFoursquareAccessToken());
+    public boolean saveProfile(ProfileJob job, User user, long leaseMillis) {
+        // Checkpointing first locks the job, so a worker that lost its lease writes nothing
+        if (!profileJobDao.checkpoint(job, leaseMillis)) return false;
+        Credential credential = new Credential();
+        credential.setAccessToken(job.getAccessToken());
+        credential.setFoursquareAccessToken(job.getFoursquareAccessToken());
         user.setCredential(credential);
-        if (userDao.exists(user.getFoursquareId())) userDao.update(user);
-        else userDao.save(user);
+        List<String> staleFriendsIds = saveUser(user);
+        job.setUserFoursquareId(user.getFoursquareId());
+        job.setPendingFriendFoursquareIds(staleFriendsIds);
+        return profileJobDao.checkpoint(job, leaseMillis);
+    }
+
+    @Transactional
+    public boolean saveFriendsLikes(ProfileJob job, Map<String, Set<Category>> friendsLikes, List<String> pendingFriendFoursquareIds, long leaseMillis) {
+        job.setPendingFriendFoursquareIds(new ArrayList<>(pendingFriendFoursquareIds));
+        if (!profileJobDao.checkpoint(job, leaseMillis)) return false;
+        userDao.syncLikes(friendsLikes);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, List<String>> getFriendsWithStaleLikes(int limit) {
+        return userDao.findStaleFriendsFoursquareIds(System.currentTimeMillis() - likesTtlMillis, limit);
+    }
+
+    @Transactional
+    public int syncFriendsLikes(Map<String, Set<Category>> friendsLikes, Collection<String> failedFriendFoursquareIds) {
+        int changed = userDao.syncLikes(friendsLikes);
+        userDao.deferLikes(failedFriendFoursquareIds, System.currentTimeMillis() + likesRetryMillis);
+        return changed;
     }
 
     @Transactional(readOnly = true)
@@ -81,6 +119,7 @@ public class UserService {
             LOGGER.warn("Not existing user attempting to retrive information");
             throw new ServiceException.Builder()
                 .messageKey("user.invalid.error")
+                .withoutStackTrace()
                 .build();
         }
         return user;
@@ -93,6 +132,7 @@ public class UserService {
             LOGGER.warn("Not existing user attempting to retrive information");
             throw new ServiceException.Builder()
                 .messageKey("user.invalid.error")
+                .withoutStackTrace()
                 .build();
         }
         return userDao.findCompactFriendsByFoursquareId(selfFoursquareId);
@@ -105,6 +145,7 @@ public class UserService {
             LOGGER.warn("Not existing user attempting to retrive information");
             throw new ServiceException.Builder()
                 .messageKey("user.invalid.error")
+                .withoutStackTrace()
                 .build();
         }
         return userDao.findLikesByFoursquareId(selfFoursquareId, locale);
@@ -117,6 +158,7 @@ public class UserService {
             LOGGER.warn("Not existing user attempting to retrive information");
             throw new ServiceException.Builder()
                 .messageKey("user.invalid.error")
+                .withoutStackTrace()
                 .build();
         }
         if (!userDao.exists(friendFoursquareId)) {
@@ -143,6 +185,7 @@ public class UserService {
             LOGGER.warn("Not existing user attempting to modify information");
             throw new ServiceException.Builder()
                 .messageKey("user.invalid.error")
+                .withoutStackTrace()
                 .build();
         }
         userDao.saveLike(selfFoursquareId, categoryFoursquareId);
@@ -155,11 +198,20 @@ public class UserService {
             LOGGER.warn("Not existing user attempting to modify information");
             throw new ServiceException.Builder()
                 .messageKey("user.invalid.error")
+                .withoutStackTrace()
                 .build();
         }
         userDao.deleteLike(selfFoursquareId, categoryFoursquareId);
     }
 
+    private List<String> saveUser(User user) {
+        List<String> friendsIds = user.getFriends().stream().map(User::getFoursquareId).collect(Collectors.toList());
+        Set<String> syncedFriendsIds = userDao.findLikesSyncedFoursquareIds(friendsIds, System.currentTimeMillis() - likesTtlMillis);
+        if (userDao.exists(user.getFoursquareId())) userDao.update(user);
+        else userDao.save(user);
+        return friendsIds.stream().filter(friendFoursquareId -> !syncedFriendsIds.contains(friendFoursquareId)).collect(Collectors.toList());
+    }
+
     private String generateAccessToken() {
         String accessToken = null;
         do accessToken = UUID.randomUUID().toString().replaceAll("-", ""); while (credentialDao.exists(accessToken));
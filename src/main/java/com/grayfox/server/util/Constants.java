@@ -34,6 +34,7 @@ public final class Constants {
     public static final class Regexs {
         public static final String POSITIVE_INT = "[1-9]\\d*";
         public static final String LOCATION = "(\\-?\\d+(\\.\\d+)?),(\\-?\\d+(\\.\\d+)?)";
+        public static final String CURSOR = "[A-Za-z0-9_\\-]+";
 
         private Regexs() {
             throw new IllegalAccessError("This class cannot be instantiated nor extended");
@@ -42,6 +43,10 @@ public final class Constants {
 
     public static final class Ints {
         public static final int EARTH_RADIUS = 6371000;
+        public static final int GEOCELL_PRECISION = 6;
+        public static final int MAX_RADIUS = 10000;
+        public static final int MAX_LIMIT = 100;
+        public static final int MAX_COVERING_CELLS = 4096;
 
         private Ints() {
             throw new IllegalAccessError("This class cannot be instantiated nor extended");
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public final class Diff<T> {
+
+    private final Set<T> added;
+    private final Set<T> removed;
+
+    private Diff(Set<T> added, Set<T> removed) {
+        this.added = Collections.unmodifiableSet(added);
+        this.removed = Collections.unmodifiableSet(removed);
+    }
+
+    public static <T> Diff<T> between(Collection<T> oldItems, Collection<T> newItems) {
+        Set<T> oldSet = oldItems instanceof Set ? (Set<T>) oldItems : new HashSet<>(oldItems);
+        Set<T> newSet = newItems instanceof Set ? (Set<T>) newItems : new HashSet<>(newItems);
+        Set<T> added = new HashSet<>();
+        for (T item : newSet) if (!oldSet.contains(item)) added.add(item);
+        Set<T> removed = new HashSet<>();
+        for (T item : oldSet) if (!newSet.contains(item)) removed.add(item);
+        return new Diff<>(added, removed);
+    }
+
+    public Set<T> getAdded() {
+        return added;
+    }
+
+    public Set<T> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+}
\ No newline at end of file
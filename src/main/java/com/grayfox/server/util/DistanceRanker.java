@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+import com.grayfox.server.domain.Cursor;
+import com.grayfox.server.domain.Location;
+
+public final class DistanceRanker {
+
+    private final double latitude;
+    private final double longitude;
+    private final double cosLatitude;
+
+    public DistanceRanker(Location origin) {
+        latitude = Math.toRadians(origin.getLatitude());
+        longitude = Math.toRadians(origin.getLongitude());
+        cosLatitude = Math.cos(latitude);
+    }
+
+    public double distanceTo(Location location) {
+        return 2 * Constants.Ints.EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(haversine(location), 1d)));
+    }
+
+    // Rounded to the millimeter like the Cypher distance so cursors don't depend on bit-identical haversines
+    public Cursor cursorOf(Location location, String foursquareId) {
+        return new Cursor(Math.round(distanceTo(location) * 1000) / 1000d, foursquareId);
+    }
+
+    public <T> List<T> nearest(Collection<T> items, Function<T, Location> locator, int limit) {
+        return nearest(items, locator, item -> null, null, limit);
+    }
+
+    public <T> List<T> nearest(Collection<T> items, Function<T, Location> locator, Function<T, String> identifier, Cursor after, int limit) {
+        if (limit <= 0 || items.isEmpty()) return new ArrayList<>(0);
+        Comparator<Ranked<T>> order = Comparator.<Ranked<T>, Cursor>comparing(ranked -> ranked.key).thenComparingInt(ranked -> ranked.position);
+        List<Ranked<T>> ranking;
+        int position = 0;
+        if (limit >= items.size()) {
+            ranking = new ArrayList<>(items.size());
+            for (T item : items) {
+                Ranked<T> ranked = new Ranked<>(item, cursorOf(locator.apply(item), identifier.apply(item)), position++);
+                if (after == null || ranked.key.compareTo(after) > 0) ranking.add(ranked);
+            }
+        } else {
+            PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(limit + 1, order.reversed());
+            for (T item : items) {
+                Ranked<T> ranked = new Ranked<>(item, cursorOf(locator.apply(item), identifier.apply(item)), position++);
+                if (after != null && ranked.key.compareTo(after) <= 0) continue;
+                if (heap.size() < limit) heap.add(ranked);
+                else if (order.compare(ranked, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(ranked);
+                }
+            }
+            ranking = new ArrayList<>(heap);
+        }
+        ranking.sort(order);
+        List<T> nearest = new ArrayList<>(ranking.size());
+        for (Ranked<T> ranked : ranking) nearest.add(ranked.item);
+        return nearest;
+    }
+
+    private double haversine(Location location) {
+        double pointLatitude = Math.toRadians(location.getLatitude());
+        double sinDeltaLatitude = Math.sin((pointLatitude - latitude) / 2);
+        double sinDeltaLongitude = Math.sin((Math.toRadians(location.getLongitude()) - longitude) / 2);
+        return sinDeltaLatitude*sinDeltaLatitude + cosLatitude*Math.cos(pointLatitude)*sinDeltaLongitude*sinDeltaLongitude;
+    }
+
+    private static class Ranked<T> {
+
+        private final T item;
+        private final Cursor key;
+        private final int position;
+
+        private Ranked(T item, Cursor key, int position) {
+            this.item = item;
+            this.key = key;
+            this.position = position;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.grayfox.server.domain.Location;
+
+public final class GeoCells {
+
+    private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int BITS = Constants.Ints.GEOCELL_PRECISION * 5;
+    private static final int LONGITUDE_BITS = (BITS + 1) / 2;
+    private static final int LATITUDE_BITS = BITS / 2;
+    private static final long LONGITUDE_CELLS = 1L << LONGITUDE_BITS;
+    private static final long LATITUDE_CELLS = 1L << LATITUDE_BITS;
+    private static final double CELL_WIDTH = 360d / LONGITUDE_CELLS;
+    private static final double CELL_HEIGHT = 180d / LATITUDE_CELLS;
+
+    private GeoCells() {
+        throw new IllegalAccessError("This class cannot be instantiated nor extended");
+    }
+
+    public static String encode(Location location) {
+        return encode(latitudeIndex(location.getLatitude()), longitudeIndex(location.getLongitude()));
+    }
+
+    public static List<String> covering(Location center, int radius) {
+        double deltaLatitude = Math.toDegrees((double) radius / Constants.Ints.EARTH_RADIUS);
+        double cosLatitude = Math.cos(Math.toRadians(center.getLatitude()));
+        double maxLatitude = Math.min(center.getLatitude() + deltaLatitude, 90d);
+        double minLatitude = Math.max(center.getLatitude() - deltaLatitude, -90d);
+        long minLatitudeIndex = latitudeIndex(minLatitude);
+        long maxLatitudeIndex = latitudeIndex(maxLatitude);
+        long minLongitudeIndex;
+        long longitudeSpan;
+        if (maxLatitude >= 90d || minLatitude <= -90d || cosLatitude < 1e-6) {
+            minLongitudeIndex = 0;
+            longitudeSpan = LONGITUDE_CELLS - 1;
+        } else {
+            double deltaLongitude = Math.min(deltaLatitude / cosLatitude, 180d);
+            minLongitudeIndex = longitudeIndex(center.getLongitude() - deltaLongitude);
+            longitudeSpan = Math.min(longitudeIndex(center.getLongitude() + deltaLongitude) - minLongitudeIndex, LONGITUDE_CELLS - 1);
+            if (longitudeSpan < 0) longitudeSpan += LONGITUDE_CELLS;
+        }
+        long cellCount = (maxLatitudeIndex - minLatitudeIndex + 1) * (longitudeSpan + 1);
+        if (cellCount > Constants.Ints.MAX_COVERING_CELLS) throw new IllegalArgumentException("Radius " + radius + " around " + center + " needs " + cellCount + " geocells, the maximum is " + Constants.Ints.MAX_COVERING_CELLS);
+        List<String> cells = new ArrayList<>((int) cellCount);
+        for (long latitudeIndex = minLatitudeIndex; latitudeIndex <= maxLatitudeIndex; latitudeIndex++) {
+            for (long offset = 0; offset <= longitudeSpan; offset++) {
+                cells.add(encode(latitudeIndex, (minLongitudeIndex + offset) % LONGITUDE_CELLS));
+            }
+        }
+        return cells;
+    }
+
+    private static long latitudeIndex(double latitude) {
+        return Math.min((long) Math.floor((latitude + 90d) / CELL_HEIGHT), LATITUDE_CELLS - 1);
+    }
+
+    private static long longitudeIndex(double longitude) {
+        double normalizedLongitude = ((longitude + 180d) % 360d + 360d) % 360d;
+        return Math.min((long) Math.floor(normalizedLongitude / CELL_WIDTH), LONGITUDE_CELLS - 1);
+    }
+
+    private static String encode(long latitudeIndex, long longitudeIndex) {
+        long hash = 0;
+        int longitudeBit = LONGITUDE_BITS - 1;
+        int latitudeBit = LATITUDE_BITS - 1;
+        for (int bit = 0; bit < BITS; bit++) {
+            hash <<= 1;
+            if (bit % 2 == 0) hash |= (longitudeIndex >>> longitudeBit--) & 1;
+            else hash |= (latitudeIndex >>> latitudeBit--) & 1;
+        }
+        char[] cell = new char[Constants.Ints.GEOCELL_PRECISION];
+        for (int i = cell.length - 1; i >= 0; i--) {
+            cell[i] = BASE_32[(int) (hash & 31)];
+            hash >>>= 5;
+        }
+        return new String(cell);
+    }
+}
\ No newline at end of file
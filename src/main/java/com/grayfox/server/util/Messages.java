@@ -20,8 +20,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,45 +33,61 @@ public final class Messages {
     private static final Collection<Locale> SUPPORTED_LOCALES = Collections.singletonList(Constants.Locales.SPANISH);
     private static final String RESOURCE_BUNDLE_BASE_NAME = "com.grayfox.server.messages";
     private static final Logger LOGGER = LoggerFactory.getLogger(Messages.class);
+    private static final Map<Locale, Map<String, Message>> CACHE = new ConcurrentHashMap<>();
 
     private Messages() {
         throw new IllegalAccessError("This class cannot be instantiated nor extended");
     }
 
     public static String get(String key, Object... messageArguments) {
-        String unformattedMessage;
-        try {
-            unformattedMessage = ResourceBundle.getBundle(RESOURCE_BUNDLE_BASE_NAME, Locale.ROOT).getString(key);
-        } catch (MissingResourceException ex) {
-            LOGGER.warn("Can't find message for key: [{}]", key, ex);
-            return String.format(Constants.Strings.MISSING_RESOURCE_KEY_FORMAT, key);
-        }
+        return get(key, Locale.ROOT, messageArguments);
+    }
+
+    public static String get(String key, Locale locale, Object... messageArguments) {
+        Message message = find(key, SUPPORTED_LOCALES.contains(locale) ? locale : Locale.ROOT);
+        if (message == null) return String.format(Constants.Strings.MISSING_RESOURCE_KEY_FORMAT, key);
         if (messageArguments.length > 0) {
-            try {
-                return MessageFormat.format(unformattedMessage, messageArguments);
-            } catch (IllegalArgumentException ex) {
-                LOGGER.warn("Can't format message: [{}] with arguments: {}", unformattedMessage, Arrays.deepToString(messageArguments), ex);
+            if (message.format == null) LOGGER.warn("Can't format message: [{}] with arguments: {}", message.pattern, Arrays.deepToString(messageArguments));
+            else {
+                try {
+                    return ((MessageFormat) message.format.clone()).format(messageArguments);
+                } catch (IllegalArgumentException ex) {
+                    LOGGER.warn("Can't format message: [{}] with arguments: {}", message.pattern, Arrays.deepToString(messageArguments), ex);
+                }
             }
         }
-        return unformattedMessage;
+        return message.pattern;
     }
 
-    public static String get(String key, Locale locale, Object... messageArguments) {
-        String unformattedMessage;
-        try {
-            ResourceBundle bundle = SUPPORTED_LOCALES.contains(locale) ? ResourceBundle.getBundle(RESOURCE_BUNDLE_BASE_NAME, locale) : ResourceBundle.getBundle(RESOURCE_BUNDLE_BASE_NAME, Locale.ROOT);
-            unformattedMessage = bundle.getString(key);
-        } catch (MissingResourceException ex) {
-            LOGGER.warn("Can't find message for key: [{}]", key, ex);
-            return String.format(Constants.Strings.MISSING_RESOURCE_KEY_FORMAT, key);
+    private static Message find(String key, Locale locale) {
+        Map<String, Message> messages = CACHE.computeIfAbsent(locale, newLocale -> new ConcurrentHashMap<>());
+        Message message = messages.get(key);
+        if (message == null) {
+            try {
+                message = new Message(ResourceBundle.getBundle(RESOURCE_BUNDLE_BASE_NAME, locale).getString(key));
+            } catch (MissingResourceException ex) {
+                LOGGER.warn("Can't find message for key: [{}]", key, ex);
+                return null;
+            }
+            messages.putIfAbsent(key, message);
         }
-        if (messageArguments.length > 0) {
+        return message;
+    }
+
+    private static class Message {
+
+        private final String pattern;
+        private final MessageFormat format;
+
+        private Message(String pattern) {
+            this.pattern = pattern;
+            MessageFormat format = null;
             try {
-                return MessageFormat.format(unformattedMessage, messageArguments);
+                format = new MessageFormat(pattern);
             } catch (IllegalArgumentException ex) {
-                LOGGER.warn("Can't format message: [{}] with arguments: {}", unformattedMessage, Arrays.deepToString(messageArguments), ex);
+                LOGGER.warn("Can't parse message: [{}]", pattern, ex);
             }
+            this.format = format;
         }
-        return unformattedMessage;
     }
 }
\ No newline at end of file
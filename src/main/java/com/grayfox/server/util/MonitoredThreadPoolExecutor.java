@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+@ManagedResource
+public class MonitoredThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitoredThreadPoolExecutor.class);
+
+    private final String name;
+    private final long drainTimeoutMillis;
+    private final ScheduledExecutorService deferrer;
+    private final AtomicLong latencyTotalMillis = new AtomicLong();
+    private final AtomicLong latencyMaxMillis = new AtomicLong();
+    private final AtomicLong timedCount = new AtomicLong();
+
+    public MonitoredThreadPoolExecutor(String name, int poolSize, int queueCapacity, long deferMillis, int maxDeferred, long drainTimeoutMillis) {
+        super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(name + "-"));
+        this.name = name;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        CustomizableThreadFactory deferrerThreadFactory = new CustomizableThreadFactory(name + "-deferrer-");
+        deferrerThreadFactory.setDaemon(true);
+        deferrer = new ScheduledThreadPoolExecutor(1, deferrerThreadFactory);
+        setRejectedExecutionHandler(new DeferringPolicy(deferrer, deferMillis, maxDeferred));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(command instanceof TimedTask ? command : new TimedTask(command));
+    }
+
+    public void drain() {
+        shutdown();
+        deferrer.shutdown();
+        try {
+            long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+            boolean drained = awaitTermination(drainTimeoutMillis, TimeUnit.MILLISECONDS)
+                    && deferrer.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0L), TimeUnit.MILLISECONDS);
+            if (!drained) {
+                LOGGER.warn("{} didn't drain in {} ms, dropping {} pending tasks", name, drainTimeoutMillis, shutdownNow().size() + deferrer.shutdownNow().size());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            shutdownNow();
+            deferrer.shutdownNow();
+        }
+    }
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    @ManagedAttribute
+    public int getActiveWorkers() {
+        return getActiveCount();
+    }
+
+    @ManagedAttribute
+    public int getDeferredCount() {
+        return ((DeferringPolicy) getRejectedExecutionHandler()).deferred.get();
+    }
+
+    @ManagedAttribute
+    public long getTotalDeferredCount() {
+        return ((DeferringPolicy) getRejectedExecutionHandler()).deferredTotal.get();
+    }
+
+    @ManagedAttribute
+    public long getCompletedTasks() {
+        return timedCount.get();
+    }
+
+    @ManagedAttribute
+    public long getAverageLatencyMillis() {
+        long count = timedCount.get();
+        return count == 0 ? 0L : latencyTotalMillis.get() / count;
+    }
+
+    @ManagedAttribute
+    public long getMaxLatencyMillis() {
+        return latencyMaxMillis.get();
+    }
+
+    private class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submittedAt = System.currentTimeMillis();
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                long latencyMillis = System.currentTimeMillis() - submittedAt;
+                latencyTotalMillis.addAndGet(latencyMillis);
+                latencyMaxMillis.accumulateAndGet(latencyMillis, Math::max);
+                timedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static class DeferringPolicy implements RejectedExecutionHandler {
+
+        private final ScheduledExecutorService deferrer;
+        private final long deferMillis;
+        private final int maxDeferred;
+        private final AtomicInteger deferred = new AtomicInteger();
+        private final AtomicLong deferredTotal = new AtomicLong();
+
+        private DeferringPolicy(ScheduledExecutorService deferrer, long deferMillis, int maxDeferred) {
+            this.deferrer = deferrer;
+            this.deferMillis = deferMillis;
+            this.maxDeferred = maxDeferred;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (!executor.isShutdown()) {
+                if (deferred.incrementAndGet() <= maxDeferred) {
+                    try {
+                        deferrer.schedule(() -> {
+                            deferred.decrementAndGet();
+                            executor.execute(task);
+                        }, deferMillis, TimeUnit.MILLISECONDS);
+                        deferredTotal.incrementAndGet();
+                        return;
+                    } catch (RejectedExecutionException ex) {
+                        LOGGER.debug("Deferrer is shut down, running task in the caller thread");
+                    }
+                } else LOGGER.warn("Too many deferred tasks, running task in the caller thread");
+                deferred.decrementAndGet();
+            }
+            task.run();
+        }
+    }
+}
\ No newline at end of file
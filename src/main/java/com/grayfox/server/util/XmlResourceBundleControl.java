@@ -1,88 +0,0 @@
-/*
- * Copyright 2014-2015 Daniel Pedraza-Arcega
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.grayfox.server.util;
-
-import java.io.BufferedInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.Collections;
-import java.util.Enumeration;
-import java.util.List;
-import java.util.Locale;
-import java.util.Properties;
-import java.util.ResourceBundle;
-import java.util.Set;
-
-public class XmlResourceBundleControl extends ResourceBundle.Control {
-
-    private static final String XML = "xml";
-
-    @Override
-    public List<String> getFormats(String baseName) {
-        if (baseName == null) throw new NullPointerException();
-        return Collections.singletonList(XML);
-    }
-
-    @Override
-    public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload) throws IllegalAccessException, InstantiationException, IOException {
-        if (baseName == null || locale == null || format == null || loader == null) throw new NullPointerException();
-        ResourceBundle bundle = null;
-        if (format.equals(XML)) {
-            String bundleName = toBundleName(baseName, locale);
-            String resourceName = toResourceName(bundleName, format);
-            InputStream stream = null;
-            if (reload) {
-                URL url = loader.getResource(resourceName);
-                if (url != null) {
-                    URLConnection connection = url.openConnection();
-                    if (connection != null) {
-                        connection.setUseCaches(false);
-                        stream = connection.getInputStream();
-                    }
-                }
-            } else stream = loader.getResourceAsStream(resourceName);
-            if (stream != null) {
-                BufferedInputStream bis = new BufferedInputStream(stream);
-                bundle = new XmlResourceBundle(bis);
-                bis.close();
-            }
-        }
-        return bundle;
-    }
-
-    private static class XmlResourceBundle extends ResourceBundle {
-
-        private Properties props;
-
-        private XmlResourceBundle(InputStream stream) throws IOException {
-            props = new Properties();
-            props.loadFromXML(stream);
-        }
-
-        @Override
-        protected Object handleGetObject(String key) {
-            return props.getProperty(key);
-        }
-
-        @Override
-        public Enumeration<String> getKeys() {
-            Set<String> handleKeys = props.stringPropertyNames();
-            return Collections.enumeration(handleKeys);
-        }
-    }
-}
\ No newline at end of file
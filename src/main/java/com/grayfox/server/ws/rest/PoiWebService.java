@@ -16,29 +16,45 @@
 package com.grayfox.server.ws.rest;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.Cursor;
 import com.grayfox.server.domain.Location;
-import com.grayfox.server.domain.Poi;
+import com.grayfox.server.domain.Page;
 import com.grayfox.server.domain.Recommendation;
 import com.grayfox.server.service.PoiService;
 import com.grayfox.server.util.Constants;
+import com.grayfox.server.util.Messages;
 import com.grayfox.server.ws.rest.response.ApiResponse;
+import com.grayfox.server.ws.rest.response.ErrorResponse;
 
 import org.hibernate.validator.constraints.NotBlank;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 
 @Controller
@@ -48,24 +64,34 @@ public class PoiWebService extends BaseRestComponent {
     private static final Logger LOGGER = LoggerFactory.getLogger(PoiWebService.class);
 
     @Inject private PoiService poiService;
+    @Inject @Named("foursquareIoExecutor") private ExecutorService foursquareIoExecutor;
+
+    @Value("${foursquare.io.timeout.millis}") private long foursquareTimeoutMillis;
 
     @GET
     @Path("search")
     @Produces(MediaType.APPLICATION_JSON)
-    public ApiResponse<List<Poi>> searchPoisByCategory(
+    public void searchPoisByCategory(
+            @Suspended AsyncResponse asyncResponse,
             @NotBlank(message = "location.required.error") @Pattern(message = "location.format.error", regexp = Constants.Regexs.LOCATION) @QueryParam("location") String locationStr,
-            @NotBlank(message = "radius.required.error") @Pattern(message = "radius.format.error", regexp = Constants.Regexs.POSITIVE_INT) @QueryParam("radius") String radiusStr,
-            @NotBlank(message = "category_foursquare_id.required.error") @QueryParam("category_foursquare_id") String categoryFoursquareId) {
-        LOGGER.debug("searchPoisByCategory({}, {}, {})", locationStr, radiusStr, categoryFoursquareId);
-        return new ApiResponse<>(poiService.getNearestPoisByCategory(Location.parse(locationStr), Integer.parseInt(radiusStr), categoryFoursquareId, getClientLocale()));
+            @NotBlank(message = "radius.required.error") @Pattern(message = "radius.format.error", regexp = Constants.Regexs.POSITIVE_INT) @Max(message = "radius.max.error", value = Constants.Ints.MAX_RADIUS) @QueryParam("radius") String radiusStr,
+            @NotBlank(message = "category_foursquare_id.required.error") @QueryParam("category_foursquare_id") String categoryFoursquareId,
+            @Pattern(message = "cursor.format.error", regexp = Constants.Regexs.CURSOR) @QueryParam("cursor") String cursorStr,
+            @Pattern(message = "limit.format.error", regexp = Constants.Regexs.POSITIVE_INT) @Max(message = "limit.max.error", value = Constants.Ints.MAX_LIMIT) @QueryParam("limit") String limitStr) {
+        LOGGER.debug("searchPoisByCategory({}, {}, {}, {}, {})", locationStr, radiusStr, categoryFoursquareId, cursorStr, limitStr);
+        Location location = Location.parse(locationStr);
+        Cursor cursor = parseCursor(cursorStr);
+        Locale locale = getClientLocale();
+        resumeAsync(asyncResponse, locale, () -> toApiResponse(poiService.getNearestPoisByCategory(location, Integer.parseInt(radiusStr), categoryFoursquareId, cursor, parseLimit(limitStr), locale)));
     }
 
     @GET
     @Path("route")
     @Produces(MediaType.APPLICATION_JSON)
-    public ApiResponse<List<Poi>> route(@NotBlank(message = "poi_foursquare_id.required.error") @QueryParam("poi_foursquare_id") String poiFoursquareId) {
+    public void route(@Suspended AsyncResponse asyncResponse, @NotBlank(message = "poi_foursquare_id.required.error") @QueryParam("poi_foursquare_id") String poiFoursquareId) {
         LOGGER.debug("route({})", poiFoursquareId);
-        return new ApiResponse<>(poiService.buildRoute(poiFoursquareId, getClientLocale()));
+        Locale locale = getClientLocale();
+        resumeAsync(asyncResponse, locale, () -> new ApiResponse<>(poiService.buildRoute(poiFoursquareId, locale)));
     }
 
     @GET
@@ -74,10 +100,12 @@ public class PoiWebService extends BaseRestComponent {
     public ApiResponse<List<Recommendation>> recommend(
             @QueryParam("access_token") String accessToken,
             @NotBlank(message = "location.required.error") @Pattern(message = "location.format.error", regexp = Constants.Regexs.LOCATION) @QueryParam("location") String locationStr,
-            @NotBlank(message = "radius.required.error") @Pattern(message = "radius.format.error", regexp = Constants.Regexs.POSITIVE_INT) @QueryParam("radius") String radiusStr) {
+            @NotBlank(message = "radius.required.error") @Pattern(message = "radius.format.error", regexp = Constants.Regexs.POSITIVE_INT) @Max(message = "radius.max.error", value = Constants.Ints.MAX_RADIUS) @QueryParam("radius") String radiusStr,
+            @Pattern(message = "cursor.format.error", regexp = Constants.Regexs.CURSOR) @QueryParam("cursor") String cursorStr,
+            @Pattern(message = "limit.format.error", regexp = Constants.Regexs.POSITIVE_INT) @Max(message = "limit.max.error", value = Constants.Ints.MAX_LIMIT) @QueryParam("limit") String limitStr) {
         if (accessToken != null && accessToken.trim().isEmpty()) accessToken = null;
-        LOGGER.debug("recommend({}, {}, {})", accessToken, locationStr, radiusStr);
-        return new ApiResponse<>(poiService.recommend(accessToken, Location.parse(locationStr), Integer.parseInt(radiusStr), getClientLocale()));
+        LOGGER.debug("recommend({}, {}, {}, {}, {})", accessToken, locationStr, radiusStr, cursorStr, limitStr);
+        return toApiResponse(poiService.recommend(accessToken, Location.parse(locationStr), Integer.parseInt(radiusStr), parseCursor(cursorStr), parseLimit(limitStr), getClientLocale()));
     }
 
     @GET
@@ -86,4 +114,46 @@ public class PoiWebService extends BaseRestComponent {
     public ApiResponse<List<Category>> categoriesLikeName(@NotBlank(message = "category_name.required.error") @PathParam("partial_name") String partialName) {
         return new ApiResponse<>(poiService.getCategoriesLikeName(partialName, getClientLocale()));
     }
+
+    private void resumeAsync(AsyncResponse asyncResponse, Locale locale, Supplier<ApiResponse<?>> request) {
+        AtomicReference<Future<?>> task = new AtomicReference<>();
+        asyncResponse.setTimeout(foursquareTimeoutMillis, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(response -> {
+            LOGGER.warn("Foursquare backed request timed out after {} ms", foursquareTimeoutMillis);
+            Future<?> running = task.get();
+            if (running != null) running.cancel(true);
+            response.resume(serviceUnavailable("foursquare.timeout.error", locale));
+        });
+        try {
+            task.set(foursquareIoExecutor.submit(() -> {
+                try {
+                    asyncResponse.resume(request.get());
+                } catch (RuntimeException ex) {
+                    asyncResponse.resume(ex);
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Foursquare I/O executor is saturated, rejecting request");
+            asyncResponse.resume(serviceUnavailable("server.busy.error", locale));
+        }
+    }
+
+    private Response serviceUnavailable(String messageKey, Locale locale) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(new ErrorResponse(messageKey, Messages.get(messageKey, locale)).toJson())
+                .build();
+    }
+
+    private Cursor parseCursor(String cursorStr) {
+        return cursorStr != null ? Cursor.parse(cursorStr) : null;
+    }
+
+    private Integer parseLimit(String limitStr) {
+        return limitStr != null ? Integer.valueOf(limitStr) : null;
+    }
+
+    private <T> ApiResponse<List<T>> toApiResponse(Page<T> page) {
+        return new ApiResponse<>(page.getItems(), page.getNextCursor() != null ? page.getNextCursor().stringValue() : null);
+    }
 }
\ No newline at end of file
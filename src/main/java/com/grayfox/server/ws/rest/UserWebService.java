@@ -56,7 +56,6 @@ public class UserWebService extends BaseRestComponent {
     public ApiResponse<AccessTokenResponse> registerUsingFoursquare(@NotBlank(message = "authorization_code.required.error") @QueryParam("authorization_code") String authorizationCode) {
         LOGGER.debug("registerUsingFoursquare({})", authorizationCode);
         Credential credential = userService.registerUsingFoursquare(authorizationCode);
-        if (credential.isNew()) userService.generateProfileUsingFoursquare(credential);
         return new ApiResponse<>(new AccessTokenResponse(credential.getAccessToken()));
     }
 
@@ -15,12 +15,17 @@
  */
 package com.grayfox.server.ws.rest.handler;
 
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
 
 import com.grayfox.server.exception.BaseApplicationException;
+import com.grayfox.server.util.Constants;
 import com.grayfox.server.util.Messages;
 import com.grayfox.server.ws.rest.BaseRestComponent;
 import com.grayfox.server.ws.rest.response.ErrorResponse;
@@ -28,6 +33,8 @@ import com.grayfox.server.ws.rest.response.ErrorResponse;
 @Provider
 public class ApplicationExceptionHandler extends BaseRestComponent implements ExceptionMapper<BaseApplicationException> {
 
+    private static final ConcurrentMap<String, String> RENDERED_ERRORS = new ConcurrentHashMap<>();
+
     @Override
     public Response toResponse(BaseApplicationException exception) {
         if (exception.getMessageKey() == null) {
@@ -36,24 +43,36 @@ public class ApplicationExceptionHandler extends BaseRestComponent implements Ex
                     .entity(new ErrorResponse("server.internal.error", exception.getMessage()).toJson())
                     .build();
         }
-        String message = Messages.get(exception.getMessageKey(), getClientLocale(), exception.getMessageArguments());
         switch (exception.getMessageKey()) {
             case "user.invalid.error":
                 return Response.status(Response.Status.UNAUTHORIZED)
                         .type(MediaType.APPLICATION_JSON)
-                        .entity(new ErrorResponse(exception.getMessageKey(), message).toJson())
+                        .entity(render(exception.getMessageKey(), exception))
                         .build();
             case "location.is_null.error":
             case "location.format.error":
+            case "cursor.format.error":
                 return Response.status(Response.Status.BAD_REQUEST)
                         .type(MediaType.APPLICATION_JSON)
-                        .entity(new ErrorResponse("param.validation.error", message).toJson())
+                        .entity(render("param.validation.error", exception))
+                        .build();
+            case "foursquare.rate_limit.error":
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .type(MediaType.APPLICATION_JSON)
+                        .entity(render(exception.getMessageKey(), exception))
                         .build();
             default: 
                 return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                         .type(MediaType.APPLICATION_JSON)
-                        .entity(new ErrorResponse(exception.getMessageKey(), message).toJson())
+                        .entity(render(exception.getMessageKey(), exception))
                         .build();
         }
     }
+
+    private String render(String errorCode, BaseApplicationException exception) {
+        Locale locale = Constants.Locales.SPANISH.equals(getClientLocale()) ? Constants.Locales.SPANISH : Locale.ROOT;
+        if (exception.hasMessageArguments()) return new ErrorResponse(errorCode, Messages.get(exception.getMessageKey(), locale, exception.getMessageArguments())).toJson();
+        return RENDERED_ERRORS.computeIfAbsent(new StringBuilder().append(errorCode).append('|').append(exception.getMessageKey()).append('|').append(locale).toString(), 
+                key -> new ErrorResponse(errorCode, Messages.get(exception.getMessageKey(), locale)).toJson());
+    }
 }
\ No newline at end of file
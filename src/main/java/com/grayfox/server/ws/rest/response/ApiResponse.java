@@ -22,20 +22,31 @@ public class ApiResponse<T> implements Serializable {
     private static final long serialVersionUID = -7239525962816927992L;
 
     private final T response;
+    private final String nextCursor;
 
     public ApiResponse(T response) {
+        this(response, null);
+    }
+
+    public ApiResponse(T response, String nextCursor) {
         this.response = response;
+        this.nextCursor = nextCursor;
     }
 
     public T getResponse() {
         return response;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((response == null) ? 0 : response.hashCode());
+        result = prime * result + ((nextCursor == null) ? 0 : nextCursor.hashCode());
         return result;
     }
 
@@ -49,11 +60,14 @@ public class ApiResponse<T> implements Serializable {
         if (response == null) {
             if (other.response != null) return false;
         } else if (!response.equals(other.response)) return false;
+        if (nextCursor == null) {
+            if (other.nextCursor != null) return false;
+        } else if (!nextCursor.equals(other.nextCursor)) return false;
         return true;
     }
 
     @Override
     public String toString() {
-        return "ApiResponse [response=" + response + "]";
+        return "ApiResponse [response=" + response + ", nextCursor=" + nextCursor + "]";
     }
 }
\ No newline at end of file
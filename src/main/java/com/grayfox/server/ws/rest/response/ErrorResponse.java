@@ -23,6 +23,7 @@ import com.google.gson.JsonObject;
 public class ErrorResponse implements Serializable {
 
     private static final long serialVersionUID = -7554491972876922142L;
+    private static final Gson GSON = new Gson();
 
     private final String errorCode;
     private final String errorMessage;
@@ -70,7 +71,7 @@ public class ErrorResponse implements Serializable {
         errorElement.addProperty("errorCode", errorCode);
         errorElement.addProperty("errorMessage", errorMessage);
         response.add("error", errorElement);
-        return new Gson().toJson(response);
+        return GSON.toJson(response);
     }
 
     @Override
@@ -64,4 +64,15 @@ public class CategoryDaoTest {
         
         assertThat(categoryDao.findByPartialName("estadio", Locale.ROOT)).isNotNull().isNotEmpty().usingElementComparatorIgnoringFields("id").containsOnlyElementsOf(expectedCategories);
     }
+
+    @Test
+    @Transactional
+    public void testFetchLikeNameIgnoringAccentsAndCase() {
+        Category c = new Category();
+        c.setFoursquareId("4bf58dd8d48988d18c941735");
+        c.setIconUrl("https://ss3.4sqi.net/img/categories_v2/arts_entertainment/default_88.png");
+        c.setName("Estadio de béisbol");
+
+        assertThat(categoryDao.findByPartialName("BEISB", Locale.ROOT)).isNotNull().usingElementComparatorIgnoringFields("id").containsExactly(c);
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ package com.grayfox.server.dao;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -26,10 +27,13 @@ import java.util.Locale;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.grayfox.server.dao.jdbc.PoiJdbcDao;
+import com.grayfox.server.dao.jdbc.SearchCellJdbcDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Poi;
 import com.grayfox.server.test.config.TestConfig;
+import com.grayfox.server.test.dao.jdbc.UtilJdbcDao;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -46,10 +50,16 @@ import org.springframework.transaction.annotation.Transactional;
 public class PoiDaoTest {
 
     @Inject @Named("poiFoursquareDao") private PoiDao poiDao;
+    @Inject private PoiJdbcDao poiLocalDao;
+    @Inject private SearchCellJdbcDao searchCellLocalDao;
+    @Inject private UtilJdbcDao utilJdbcDao;
 
     @Before
     public void setUp() {
         assertThat(poiDao).isNotNull();
+        assertThat(poiLocalDao).isNotNull();
+        assertThat(searchCellLocalDao).isNotNull();
+        assertThat(utilJdbcDao).isNotNull();
     }
 
     @Test
@@ -110,4 +120,84 @@ public class PoiDaoTest {
         assertThatThrownBy(() -> poiDao.findNearestByCategory(Location.parse("19.04365,-98.197968"), 800, "invalidId", Locale.ROOT))
             .isInstanceOf(DaoException.class);
     }
+
+    @Test
+    @Transactional
+    public void testFetchNextFromLocalGraph() {
+        Category c1 = newCategory("1");
+        Category c2 = newCategory("2");
+        Category c3 = newCategory("3");
+        utilJdbcDao.saveCategories(Arrays.asList(c1, c2, c3));
+
+        Poi seed = newPoi("1", "19.044,-98.197753", c1);
+        Poi p2 = newPoi("2", "19.043148,-98.198354", c1);
+        Poi p3 = newPoi("3", "19.045,-98.196", c2);
+        Poi p4 = newPoi("4", "19.046,-98.195", c3);
+
+        poiLocalDao.saveNext(seed, Arrays.asList(p2, p3, p4));
+        poiLocalDao.saveNext(p3, Arrays.asList(p4, seed));
+
+        assertThat(poiLocalDao.findNext(seed.getFoursquareId(), 3, Locale.ROOT)).extracting("foursquareId").containsExactly("3", "4");
+        assertThat(poiLocalDao.findNext(seed.getFoursquareId(), 4, Locale.ROOT)).isEmpty();
+        assertThat(poiLocalDao.findNext("invalidId", 3, Locale.ROOT)).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    public void testFetchLongNextRouteFromLocalGraph() {
+        List<Category> categories = new ArrayList<>();
+        List<Poi> pois = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            Category category = newCategory(String.valueOf(i));
+            categories.add(category);
+            pois.add(newPoi(String.valueOf(i), String.format(Locale.ROOT, "19.04%d,-98.197", i), category));
+        }
+        utilJdbcDao.saveCategories(categories);
+        for (int i = 0; i < pois.size()-1; i++) poiLocalDao.saveNext(pois.get(i), Arrays.asList(pois.get(i+1)));
+
+        assertThat(poiLocalDao.findNext("1", 8, Locale.ROOT)).extracting("foursquareId").containsExactly("2", "3", "4", "5", "6", "7", "8");
+    }
+
+    @Test
+    @Transactional
+    public void testFetchNearestByCategoryFromSearchCell() {
+        Category c1 = newCategory("1");
+        Category c2 = newCategory("2");
+        utilJdbcDao.saveCategories(Arrays.asList(c1, c2));
+
+        Location location = Location.parse("19.044,-98.197753");
+        Poi p1 = newPoi("1", "19.044,-98.197753", c1);
+        Poi p2 = newPoi("2", "19.043148,-98.198354", c2);
+
+        assertThat(searchCellLocalDao.isFresh(location, 800, c1.getFoursquareId())).isFalse();
+
+        searchCellLocalDao.save(location, 800, c1.getFoursquareId(), Arrays.asList(p1, p2));
+
+        assertThat(searchCellLocalDao.isFresh(location, 800, c1.getFoursquareId())).isTrue();
+        assertThat(searchCellLocalDao.isFresh(Location.parse("19.04400004,-98.19775349"), 500, c1.getFoursquareId())).isTrue();
+        assertThat(searchCellLocalDao.isFresh(location, 500, c1.getFoursquareId())).isTrue();
+        assertThat(searchCellLocalDao.isFresh(location, 1000, c1.getFoursquareId())).isFalse();
+        assertThat(searchCellLocalDao.isFresh(location, 800, c2.getFoursquareId())).isFalse();
+        assertThat(searchCellLocalDao.isFresh(Location.parse("19.0447,-98.1975"), 700, c1.getFoursquareId())).isTrue();
+        assertThat(searchCellLocalDao.isFresh(Location.parse("19.0447,-98.1975"), 750, c1.getFoursquareId())).isFalse();
+        assertThat(poiLocalDao.findNearestByCategory(location, 800, c1.getFoursquareId(), Locale.ROOT)).extracting("foursquareId").containsOnly("1", "2");
+    }
+
+    private Category newCategory(String foursquareId) {
+        Category category = new Category();
+        category.setFoursquareId(foursquareId);
+        category.setIconUrl("url");
+        category.setName("CAT_" + foursquareId);
+        return category;
+    }
+
+    private Poi newPoi(String foursquareId, String location, Category category) {
+        Poi poi = new Poi();
+        poi.setFoursquareId(foursquareId);
+        poi.setFoursquareRating(9d);
+        poi.setLocation(Location.parse(location));
+        poi.setName("POI_" + foursquareId);
+        poi.setCategories(new HashSet<>(Arrays.asList(category)));
+        return poi;
+    }
 }
\ No newline at end of file
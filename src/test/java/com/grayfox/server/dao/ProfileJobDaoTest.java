@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import com.grayfox.server.domain.ProfileJob;
+import com.grayfox.server.test.config.TestConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@Rollback
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestConfig.class)
+public class ProfileJobDaoTest {
+
+    @Inject private ProfileJobDao profileJobDao;
+
+    @Before
+    public void setUp() {
+        assertThat(profileJobDao).isNotNull();
+    }
+
+    @Test
+    @Transactional
+    public void testCrud() {
+        ProfileJob job = new ProfileJob();
+        job.setAccessToken("fakeAccessToken");
+        job.setFoursquareAccessToken("fakeFoursquareAccessToken");
+
+        profileJobDao.save(job);
+
+        assertThat(job.getId()).isNotNull();
+
+        List<ProfileJob> claimedJobs = profileJobDao.claim(10, 60_000);
+
+        assertThat(claimedJobs).isNotNull().hasSize(1);
+        assertThat(claimedJobs.get(0).getId()).isEqualTo(job.getId());
+        assertThat(claimedJobs.get(0).getFoursquareAccessToken()).isEqualTo(job.getFoursquareAccessToken());
+        assertThat(claimedJobs.get(0).getUserFoursquareId()).isNull();
+        assertThat(claimedJobs.get(0).getPendingFriendFoursquareIds()).isNull();
+        assertThat(claimedJobs.get(0).getAttempts()).isEqualTo(1);
+        assertThat(profileJobDao.claim(10, 60_000)).isNotNull().isEmpty();
+
+        ProfileJob claimedJob = claimedJobs.get(0);
+        claimedJob.setUserFoursquareId("fakeUserId");
+        claimedJob.setPendingFriendFoursquareIds(Arrays.asList("friend1", "friend2"));
+        assertThat(profileJobDao.checkpoint(claimedJob, 0)).isTrue();
+        claimedJobs = profileJobDao.claim(10, 60_000);
+
+        assertThat(claimedJobs).isNotNull().hasSize(1);
+        assertThat(claimedJobs.get(0).getUserFoursquareId()).isEqualTo("fakeUserId");
+        assertThat(claimedJobs.get(0).getPendingFriendFoursquareIds()).containsExactly("friend1", "friend2");
+        assertThat(claimedJobs.get(0).getAttempts()).isEqualTo(2);
+        assertThat(profileJobDao.checkpoint(claimedJob, 60_000)).isFalse();
+
+        profileJobDao.delete(claimedJob);
+        profileJobDao.release(claimedJobs.get(0), 0);
+        claimedJobs = profileJobDao.claim(10, 60_000);
+
+        assertThat(claimedJobs).isNotNull().hasSize(1);
+
+        profileJobDao.delete(claimedJobs.get(0));
+
+        assertThat(profileJobDao.claim(10, 60_000)).isNotNull().isEmpty();
+    }
+}
\ No newline at end of file
@@ -17,6 +17,7 @@ package com.grayfox.server.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -26,12 +27,15 @@ import javax.inject.Inject;
 
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Credential;
+import com.grayfox.server.domain.Cursor;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Poi;
 import com.grayfox.server.domain.Recommendation;
 import com.grayfox.server.domain.User;
 import com.grayfox.server.test.config.TestConfig;
+import com.grayfox.server.test.dao.jdbc.StatementCounter;
 import com.grayfox.server.test.dao.jdbc.UtilJdbcDao;
+import com.grayfox.server.util.DistanceRanker;
 import com.grayfox.server.util.Messages;
 
 import org.junit.Before;
@@ -49,6 +53,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class RecommendationDaoTest {
 
     @Inject private UtilJdbcDao utilJdbcDao;
+    @Inject private StatementCounter statementCounter;
     @Inject private CredentialDao credentialDao;
     @Inject private UserDao userDao;
     @Inject private RecommendationDao recommendationDao;
@@ -56,6 +61,7 @@ public class RecommendationDaoTest {
     @Before
     public void setUp() {
         assertThat(utilJdbcDao).isNotNull();
+        assertThat(statementCounter).isNotNull();
         assertThat(credentialDao).isNotNull();
         assertThat(userDao).isNotNull();
         assertThat(recommendationDao).isNotNull();
@@ -84,7 +90,7 @@ public class RecommendationDaoTest {
         r1.setReason(Messages.get("recommendation.global.reason"));
 
         List<Recommendation> expectedRecommendations = Arrays.asList(r1);
-        List<Recommendation> actualRecommendations = recommendationDao.findNearestWithHighRating(Location.parse("19.043635,-98.197947"), 100, Locale.ROOT);
+        List<Recommendation> actualRecommendations = recommendationDao.findNearestWithHighRating(Location.parse("19.043635,-98.197947"), 100, null, null, Locale.ROOT);
 
         assertThat(actualRecommendations).isNotNull().isNotEmpty().doesNotContainNull().hasSameSizeAs(expectedRecommendations).containsExactlyElementsOf(expectedRecommendations);
     }
@@ -129,7 +135,7 @@ public class RecommendationDaoTest {
         r2.setReason(Messages.get("recommendation.self.reason", c3.getName()));
 
         List<Recommendation> expectedRecommendations = Arrays.asList(r1, r2);
-        List<Recommendation> actualRecommendations = recommendationDao.findNearestByCategoriesLiked("fakeToken", Location.parse("19.043635,-98.197947"), 100, Locale.ROOT);
+        List<Recommendation> actualRecommendations = recommendationDao.findNearestByCategoriesLiked("fakeToken", Location.parse("19.043635,-98.197947"), 100, null, null, Locale.ROOT);
 
         assertThat(actualRecommendations).isNotNull().isNotEmpty().doesNotContainNull().hasSameSizeAs(expectedRecommendations).containsExactlyElementsOf(expectedRecommendations);
     }
@@ -174,11 +180,58 @@ public class RecommendationDaoTest {
         r2.setReason(Messages.get("recommendation.social.reason", "John3 Doe3", c2.getName()));
 
         List<Recommendation> expectedRecommendations = Arrays.asList(r1, r2);
-        List<Recommendation> actualRecommendations = recommendationDao.findNearestByCategoriesLikedByFriends("fakeToken", Location.parse("19.043635,-98.197947"), 100, Locale.ROOT);
+        List<Recommendation> actualRecommendations = recommendationDao.findNearestByCategoriesLikedByFriends("fakeToken", Location.parse("19.043635,-98.197947"), 100, null, null, Locale.ROOT);
 
         assertThat(actualRecommendations).isNotNull().isNotEmpty().doesNotContainNull().hasSameSizeAs(expectedRecommendations).containsExactlyElementsOf(expectedRecommendations);
     }
 
+    @Test
+    @Transactional
+    public void testFetchNearestByRatingStatementCount() {
+        loadMockDataForFetchNearestByRatingStatementCount();
+
+        statementCounter.reset();
+        List<Recommendation> fewRecommendations = recommendationDao.findNearestWithHighRating(Location.parse("19.043635,-98.197947"), 100, null, null, Locale.ROOT);
+        int fewStatements = statementCounter.getCount();
+
+        statementCounter.reset();
+        List<Recommendation> manyRecommendations = recommendationDao.findNearestWithHighRating(Location.parse("19.432608,-99.133209"), 100, null, null, Locale.ROOT);
+        int manyStatements = statementCounter.getCount();
+
+        assertThat(fewRecommendations).hasSize(1);
+        assertThat(manyRecommendations).hasSize(25);
+        manyRecommendations.forEach(recommendation -> assertThat(recommendation.getPoi().getCategories()).isNotEmpty());
+        assertThat(manyStatements).isEqualTo(fewStatements);
+    }
+
+    @Test
+    @Transactional
+    public void testFetchNearestByRatingPaginated() {
+        loadMockDataForFetchNearestByRatingStatementCount();
+
+        Location location = Location.parse("19.432608,-99.133209");
+        DistanceRanker ranker = new DistanceRanker(location);
+        List<Recommendation> allRecommendations = recommendationDao.findNearestWithHighRating(location, 100, null, null, Locale.ROOT);
+        List<Recommendation> pagedRecommendations = new ArrayList<>();
+        Cursor after = null;
+        List<Recommendation> page;
+        do {
+            page = recommendationDao.findNearestWithHighRating(location, 100, after, 10, Locale.ROOT);
+            assertThat(page.size()).isLessThanOrEqualTo(10);
+            pagedRecommendations.addAll(page);
+            if (!page.isEmpty()) {
+                Recommendation last = page.get(page.size() - 1);
+                after = ranker.cursorOf(last.getPoi().getLocation(), last.getPoi().getFoursquareId());
+            }
+        } while (page.size() == 10);
+
+        assertThat(allRecommendations).hasSize(25);
+        assertThat(pagedRecommendations).containsExactlyElementsOf(allRecommendations);
+        for (int i = 1; i < pagedRecommendations.size(); i++) {
+            assertThat(ranker.distanceTo(pagedRecommendations.get(i).getPoi().getLocation())).isGreaterThanOrEqualTo(ranker.distanceTo(pagedRecommendations.get(i - 1).getPoi().getLocation()));
+        }
+    }
+
     private void loadMockDataForFetchNearestByRating() {
         Category c = new Category();
         c.setFoursquareId("1");
@@ -210,6 +263,35 @@ public class RecommendationDaoTest {
         utilJdbcDao.savePois(Arrays.asList(p1, p2, p3));
     }
 
+    private void loadMockDataForFetchNearestByRatingStatementCount() {
+        Category c = new Category();
+        c.setFoursquareId("1");
+        c.setIconUrl("url");
+        c.setName("CAT_1");
+
+        Poi p1 = new Poi();
+        p1.setFoursquareId("1");
+        p1.setFoursquareRating(9.2);
+        p1.setLocation(Location.parse("19.044,-98.197753"));
+        p1.setName("POI_1");
+        p1.setCategories(new HashSet<>(Arrays.asList(c)));
+
+        List<Poi> pois = new ArrayList<>();
+        pois.add(p1);
+        for (int i = 0; i < 25; i++) {
+            Poi p = new Poi();
+            p.setFoursquareId("zocalo" + i);
+            p.setFoursquareRating(9.5);
+            p.setLocation(Location.parse("19.4326" + i + ",-99.13320" + i % 10));
+            p.setName("ZOCALO_" + i);
+            p.setCategories(new HashSet<>(Arrays.asList(c)));
+            pois.add(p);
+        }
+
+        utilJdbcDao.saveCategory(c);
+        utilJdbcDao.savePois(pois);
+    }
+
     private void loadMockDataForFetchNearestByCategoriesLiked() {
         Category c1 = new Category();
         c1.setFoursquareId("1");
@@ -17,14 +17,22 @@ package com.grayfox.server.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
+import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Credential;
 import com.grayfox.server.domain.User;
 import com.grayfox.server.test.config.TestConfig;
+import com.grayfox.server.test.dao.jdbc.StatementCounter;
+import com.grayfox.server.test.dao.jdbc.UtilJdbcDao;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -42,11 +50,15 @@ public class UserDaoTest {
 
     @Inject private CredentialDao credentialDao;
     @Inject private UserDao userDao;
+    @Inject private UtilJdbcDao utilJdbcDao;
+    @Inject private StatementCounter statementCounter;
 
     @Before
     public void setUp() {
         assertThat(credentialDao).isNotNull();
         assertThat(userDao).isNotNull();
+        assertThat(utilJdbcDao).isNotNull();
+        assertThat(statementCounter).isNotNull();
     }
 
     @Test
@@ -122,4 +134,136 @@ public class UserDaoTest {
 
         assertThat(actualUser).isEqualTo(expectedUser);
     }
+
+    @Test
+    @Transactional
+    public void testSaveAndUpdateStatementCount() {
+        Credential credential = new Credential();
+        credential.setAccessToken("fakeAccessToken");
+        credential.setFoursquareAccessToken("fakeFoursquareAccessToken");
+
+        credentialDao.save(credential);
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Category category = new Category();
+            category.setFoursquareId("category" + i);
+            category.setIconUrl("url");
+            category.setName("CAT_" + i);
+            categories.add(category);
+        }
+        utilJdbcDao.saveCategories(categories);
+
+        User user = new User();
+        user.setName("name");
+        user.setLastName("lastName");
+        user.setPhotoUrl("url");
+        user.setFoursquareId("1");
+        user.setCredential(credential);
+        user.setLikes(new HashSet<>(categories));
+        user.setFriends(new HashSet<>(createFriends(0, 100, categories)));
+
+        statementCounter.reset();
+        userDao.save(user);
+
+        assertThat(statementCounter.getCount()).isLessThanOrEqualTo(6);
+        assertThat(user.getId()).isNotNull();
+        user.getFriends().forEach(friend -> assertThat(friend.getId()).isNotNull());
+        assertThat(userDao.findCompactFriendsByFoursquareId(user.getFoursquareId())).hasSize(100);
+        assertThat(userDao.findLikesByFoursquareId(user.getFoursquareId(), null)).hasSize(20);
+        assertThat(userDao.findLikesByFoursquareId("friend99", null)).hasSize(20);
+
+        user.getFriends().addAll(createFriends(100, 200, categories));
+
+        statementCounter.reset();
+        userDao.update(user);
+
+        assertThat(statementCounter.getCount()).isLessThanOrEqualTo(10);
+        assertThat(userDao.findCompactFriendsByFoursquareId(user.getFoursquareId())).hasSize(200);
+        assertThat(userDao.findLikesByFoursquareId("friend199", null)).hasSize(20);
+    }
+
+    @Test
+    @Transactional
+    public void testSyncLikes() {
+        Credential credential = new Credential();
+        credential.setAccessToken("fakeAccessToken");
+        credential.setFoursquareAccessToken("fakeFoursquareAccessToken");
+
+        credentialDao.save(credential);
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Category category = new Category();
+            category.setFoursquareId("category" + i);
+            category.setIconUrl("url");
+            category.setName("CAT_" + i);
+            categories.add(category);
+        }
+        utilJdbcDao.saveCategories(categories);
+
+        User user = new User();
+        user.setName("name");
+        user.setLastName("lastName");
+        user.setPhotoUrl("url");
+        user.setFoursquareId("1");
+        user.setCredential(credential);
+        user.setFriends(new HashSet<>(createFriends(0, 3, null)));
+
+        userDao.save(user);
+
+        List<String> friendsIds = Arrays.asList("friend0", "friend1", "friend2");
+
+        assertThat(userDao.findLikesSyncedFoursquareIds(friendsIds, 0)).isNotNull().isEmpty();
+        assertThat(userDao.findLikesSyncedFoursquareIds(Arrays.asList(user.getFoursquareId()), 0)).containsOnly(user.getFoursquareId());
+        assertThat(userDao.findStaleFriendsFoursquareIds(System.currentTimeMillis(), 10)).containsOnlyKeys(credential.getFoursquareAccessToken());
+        assertThat(userDao.findStaleFriendsFoursquareIds(System.currentTimeMillis(), 10).get(credential.getFoursquareAccessToken())).containsOnlyElementsOf(friendsIds);
+
+        Map<String, Set<Category>> friendsLikes = new HashMap<>();
+        friendsLikes.put("friend0", new HashSet<>(Arrays.asList(categories.get(0), categories.get(1))));
+        friendsLikes.put("friend1", new HashSet<>(Arrays.asList(categories.get(0))));
+
+        assertThat(userDao.syncLikes(friendsLikes)).isEqualTo(2);
+        assertThat(userDao.findLikesByFoursquareId("friend0", null)).hasSize(2);
+        assertThat(userDao.findLikesByFoursquareId("friend1", null)).hasSize(1);
+
+        statementCounter.reset();
+
+        assertThat(userDao.syncLikes(friendsLikes)).isEqualTo(0);
+        assertThat(statementCounter.getCount()).isLessThanOrEqualTo(2);
+
+        friendsLikes.remove("friend1");
+        friendsLikes.put("friend0", new HashSet<>(Arrays.asList(categories.get(1), categories.get(2))));
+
+        statementCounter.reset();
+
+        assertThat(userDao.syncLikes(friendsLikes)).isEqualTo(1);
+        assertThat(statementCounter.getCount()).isLessThanOrEqualTo(5);
+        assertThat(userDao.findLikesByFoursquareId("friend0", null)).usingElementComparatorOnFields("foursquareId").containsOnly(categories.get(1), categories.get(2));
+
+        assertThat(userDao.findStaleFriendsFoursquareIds(System.currentTimeMillis() - 60_000, 10).values()).flatExtracting(ids -> ids).containsOnly("friend2");
+
+        userDao.deferLikes(Arrays.asList("friend2"), System.currentTimeMillis() + 60_000);
+
+        assertThat(userDao.findLikesSyncedFoursquareIds(friendsIds, System.currentTimeMillis() - 60_000)).containsOnly("friend0", "friend1");
+        assertThat(userDao.findStaleFriendsFoursquareIds(System.currentTimeMillis() - 60_000, 10)).isNotNull().isEmpty();
+
+        userDao.deferLikes(Arrays.asList("friend2"), System.currentTimeMillis() - 1);
+
+        assertThat(userDao.findStaleFriendsFoursquareIds(System.currentTimeMillis() - 60_000, 10).values()).flatExtracting(ids -> ids).containsOnly("friend2");
+    }
+
+    private List<User> createFriends(int from, int to, List<Category> likes) {
+        List<User> friends = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            User friend = new User();
+            friend.setName("friend" + i);
+            friend.setLastName("lastName");
+            friend.setPhotoUrl("url");
+            friend.setFoursquareId("friend" + i);
+            if (likes != null) friend.setLikes(new HashSet<>(likes));
+            friends.add(friend);
+        }
+        return friends;
+    }
 }
\ No newline at end of file
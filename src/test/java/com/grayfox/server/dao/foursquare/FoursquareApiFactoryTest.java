@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FoursquareApiFactoryTest {
+
+    private FoursquareApiFactory foursquareApiFactory;
+
+    @Before
+    public void setUp() {
+        foursquareApiFactory = new FoursquareApiFactory();
+        ReflectionTestUtils.setField(foursquareApiFactory, "clientId", "id");
+        ReflectionTestUtils.setField(foursquareApiFactory, "clientSecret", "secret");
+        ReflectionTestUtils.setField(foursquareApiFactory, "tokenCacheMaxSize", 1L);
+        ReflectionTestUtils.setField(foursquareApiFactory, "tokenCacheTtlMillis", 60_000L);
+        foursquareApiFactory.init();
+    }
+
+    @Test
+    public void testClientsAreReusedPerLocale() {
+        assertThat(foursquareApiFactory.get(Locale.ROOT)).isSameAs(foursquareApiFactory.get(Locale.ROOT));
+        assertThat(foursquareApiFactory.get(new Locale("es"))).isNotSameAs(foursquareApiFactory.get(Locale.ROOT));
+        assertThat(foursquareApiFactory.getLocaleClientCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testClientsAreReusedPerAccessToken() {
+        assertThat(foursquareApiFactory.get("token1")).isSameAs(foursquareApiFactory.get("token1"));
+        assertThat(foursquareApiFactory.get("token2")).isNotSameAs(foursquareApiFactory.get("token1"));
+        assertThat(foursquareApiFactory.getAccessTokenClientCount()).isEqualTo(1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import com.foursquare4j.FoursquareApi;
+
+import com.grayfox.server.dao.DaoException;
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FoursquareProfileDaoTest {
+
+    private FoursquareRateLimiter rateLimiter;
+    private FoursquareProfileDao foursquareProfileDao;
+
+    @Before
+    public void setUp() {
+        rateLimiter = mock(FoursquareRateLimiter.class);
+        foursquareProfileDao = new FoursquareProfileDao();
+        ReflectionTestUtils.setField(foursquareProfileDao, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(foursquareProfileDao, "likesExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(foursquareProfileDao, "likesMaxAttempts", 3);
+        ReflectionTestUtils.setField(foursquareProfileDao, "likesBackoffMillis", 1L);
+    }
+
+    @Test
+    public void testFailedFriendLikesAreRetried() {
+        when(rateLimiter.call(any(Priority.class), any())).thenThrow(new IllegalStateException());
+
+        assertThat(foursquareProfileDao.collectFriendsLikes(mock(FoursquareApi.class), Arrays.asList("1"))).isEmpty();
+        verify(rateLimiter, times(3)).call(any(Priority.class), any());
+    }
+
+    @Test
+    public void testShedFriendLikesAreNotRetried() {
+        when(rateLimiter.call(any(Priority.class), any())).thenThrow(new DaoException.Builder()
+            .messageKey("foursquare.rate_limit.error")
+            .withoutStackTrace()
+            .build());
+
+        assertThat(foursquareProfileDao.collectFriendsLikes(mock(FoursquareApi.class), Arrays.asList("1"))).isEmpty();
+        verify(rateLimiter, times(1)).call(any(Priority.class), any());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foursquare4j.response.Meta;
+import com.foursquare4j.response.Result;
+import com.foursquare4j.response.Venue;
+
+import com.grayfox.server.dao.DaoException;
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FoursquareRateLimiterTest {
+
+    private FoursquareRateLimiter rateLimiter;
+    private AtomicInteger requestCount;
+
+    @Before
+    public void setUp() {
+        rateLimiter = new FoursquareRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "maxRate", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "minRate", 0.0001);
+        ReflectionTestUtils.setField(rateLimiter, "burst", 3d);
+        ReflectionTestUtils.setField(rateLimiter, "backgroundReserve", 1d);
+        ReflectionTestUtils.setField(rateLimiter, "interactiveMaxWaitMillis", 10L);
+        ReflectionTestUtils.setField(rateLimiter, "backgroundMaxWaitMillis", 10L);
+        rateLimiter.init();
+        requestCount = new AtomicInteger();
+    }
+
+    @Test
+    public void testBackgroundKeepsReserveForInteractive() {
+        rateLimiter.call(Priority.BACKGROUND, () -> request(200, null));
+        rateLimiter.call(Priority.BACKGROUND, () -> request(200, null));
+        assertThatThrownBy(() -> rateLimiter.call(Priority.BACKGROUND, () -> request(200, null)))
+            .isInstanceOf(DaoException.class);
+
+        rateLimiter.call(Priority.INTERACTIVE, () -> request(200, null));
+        assertThatThrownBy(() -> rateLimiter.call(Priority.INTERACTIVE, () -> request(200, null)))
+            .isInstanceOf(DaoException.class);
+
+        assertThat(requestCount.get()).isEqualTo(3);
+        assertThat(rateLimiter.getBackgroundShedCount()).isEqualTo(1);
+        assertThat(rateLimiter.getInteractiveShedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRateAdaptsToRateLimitErrors() {
+        rateLimiter.call(Priority.INTERACTIVE, () -> request(403, "rate_limit_exceeded"));
+
+        assertThat(rateLimiter.getRate()).isEqualTo(0.0005);
+        assertThat(rateLimiter.getThrottleCount()).isEqualTo(1);
+        assertThatThrownBy(() -> rateLimiter.call(Priority.INTERACTIVE, () -> request(200, null)))
+            .isInstanceOf(DaoException.class);
+    }
+
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(rateLimiter, "enabled", false);
+
+        for (int i = 0; i < 5; i++) rateLimiter.call(Priority.BACKGROUND, () -> request(200, null));
+
+        assertThat(requestCount.get()).isEqualTo(5);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result<Venue> request(int code, String errorType) {
+        requestCount.incrementAndGet();
+        Meta meta = mock(Meta.class);
+        when(meta.getCode()).thenReturn(code);
+        when(meta.getErrorType()).thenReturn(errorType);
+        Result<Venue> result = mock(Result.class);
+        when(result.getMeta()).thenReturn(meta);
+        return result;
+    }
+}
\ No newline at end of file
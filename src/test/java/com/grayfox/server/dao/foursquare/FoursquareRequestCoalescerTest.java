@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foursquare4j.response.Result;
+import com.foursquare4j.response.Venue;
+
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FoursquareRequestCoalescerTest {
+
+    private FoursquareRequestCoalescer requestCoalescer;
+    private AtomicInteger requestCount;
+
+    @Before
+    public void setUp() {
+        requestCoalescer = new FoursquareRequestCoalescer();
+        requestCount = new AtomicInteger();
+    }
+
+    @Test(timeout = 5000)
+    public void testConcurrentCallsShareOneRequest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Result<Venue>> leader = CompletableFuture.supplyAsync(() -> requestCoalescer.get("venues", "1", Locale.ROOT, () -> {
+            started.countDown();
+            await(release);
+            return request();
+        }));
+        started.await();
+        CompletableFuture<Result<Venue>> follower = CompletableFuture.supplyAsync(() -> requestCoalescer.get("venues", "1", Locale.ROOT, this::request));
+        while (requestCoalescer.getCoalescedCount() == 0) Thread.sleep(1);
+        release.countDown();
+
+        assertThat(follower.get()).isSameAs(leader.get());
+        assertThat(requestCount.get()).isEqualTo(1);
+        assertThat(requestCoalescer.getRequestCount()).isEqualTo(2);
+        assertThat(requestCoalescer.getCoalescingRatio()).isEqualTo(0.5);
+        assertThat(requestCoalescer.getInFlightCount()).isZero();
+    }
+
+    @Test
+    public void testSequentialAndDistinctCallsAreNotCoalesced() {
+        requestCoalescer.get("venues", "1", Locale.ROOT, this::request);
+        requestCoalescer.get("venues", "1", Locale.ROOT, this::request);
+        requestCoalescer.get("venues", "1", new Locale("es"), this::request);
+        requestCoalescer.get("venues/nextvenues", "1", Locale.ROOT, this::request);
+
+        assertThat(requestCount.get()).isEqualTo(4);
+        assertThat(requestCoalescer.getCoalescedCount()).isZero();
+        assertThat(requestCoalescer.getCoalescingRatio()).isZero();
+    }
+
+    @Test(timeout = 5000)
+    public void testInteractiveCallDoesNotJoinBackgroundLeader() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Result<Venue>> leader = CompletableFuture.supplyAsync(() -> requestCoalescer.get("venues/nextvenues", "1", Locale.ROOT, Priority.BACKGROUND, () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException();
+        }));
+        started.await();
+
+        assertThat(requestCoalescer.get("venues/nextvenues", "1", Locale.ROOT, Priority.INTERACTIVE, this::request)).isNotNull();
+        assertThat(requestCoalescer.getCoalescedCount()).isZero();
+
+        release.countDown();
+
+        assertThatThrownBy(leader::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(requestCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailureIsPropagatedAndNotRetained() {
+        assertThatThrownBy(() -> requestCoalescer.get("venues", "1", Locale.ROOT, () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+
+        requestCoalescer.get("venues", "1", Locale.ROOT, this::request);
+
+        assertThat(requestCount.get()).isEqualTo(1);
+        assertThat(requestCoalescer.getInFlightCount()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result<Venue> request() {
+        requestCount.incrementAndGet();
+        return mock(Result.class);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foursquare4j.response.Meta;
+import com.foursquare4j.response.Result;
+import com.foursquare4j.response.Venue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FoursquareResponseCacheTest {
+
+    private FoursquareResponseCache responseCache;
+    private AtomicInteger requestCount;
+
+    @Before
+    public void setUp() {
+        responseCache = new FoursquareResponseCache();
+        ReflectionTestUtils.setField(responseCache, "enabled", true);
+        ReflectionTestUtils.setField(responseCache, "maxSize", 2L);
+        ReflectionTestUtils.setField(responseCache, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(responseCache, "staleMillis", 0L);
+        ReflectionTestUtils.setField(responseCache, "refreshExecutor", (Executor) Runnable::run);
+        responseCache.init();
+        requestCount = new AtomicInteger();
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        Result<Venue> first = responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+        Result<Venue> second = responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+        responseCache.get("venues", "1", new Locale("es"), () -> request(200));
+        responseCache.get("venues/nextvenues", "1", Locale.ROOT, () -> request(200));
+
+        assertThat(second).isSameAs(first);
+        assertThat(requestCount.get()).isEqualTo(3);
+        assertThat(responseCache.getHitCount()).isEqualTo(1);
+        assertThat(responseCache.getMissCount()).isEqualTo(3);
+        assertThat(responseCache.getEvictionCount()).isEqualTo(1);
+        assertThat(responseCache.getSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        responseCache.get("venues", "1", Locale.ROOT, () -> request(500));
+        responseCache.get("venues", "1", Locale.ROOT, () -> request(500));
+
+        assertThat(requestCount.get()).isEqualTo(2);
+        assertThat(responseCache.getSize()).isZero();
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() {
+        ReflectionTestUtils.setField(responseCache, "ttlMillis", 0L);
+        ReflectionTestUtils.setField(responseCache, "staleMillis", 60_000L);
+        responseCache.init();
+
+        Result<Venue> first = responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+        sleepPastTtl();
+        Result<Venue> stale = responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+        sleepPastTtl();
+        Result<Venue> revalidated = responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+
+        assertThat(stale).isSameAs(first);
+        assertThat(revalidated).isNotSameAs(first);
+        assertThat(responseCache.getStaleHitCount()).isEqualTo(2);
+        assertThat(requestCount.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(responseCache, "enabled", false);
+
+        responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+        responseCache.get("venues", "1", Locale.ROOT, () -> request(200));
+
+        assertThat(requestCount.get()).isEqualTo(2);
+        assertThat(responseCache.getSize()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result<Venue> request(int code) {
+        requestCount.incrementAndGet();
+        Meta meta = mock(Meta.class);
+        when(meta.getCode()).thenReturn(code);
+        Result<Venue> result = mock(Result.class);
+        when(result.getMeta()).thenReturn(meta);
+        return result;
+    }
+
+    private void sleepPastTtl() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.dao.foursquare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.foursquare4j.FoursquareApi;
+import com.foursquare4j.response.Category;
+import com.foursquare4j.response.Group;
+import com.foursquare4j.response.Icon;
+import com.foursquare4j.response.Location;
+import com.foursquare4j.response.Meta;
+import com.foursquare4j.response.Result;
+import com.foursquare4j.response.Venue;
+
+import com.grayfox.server.dao.DaoException;
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter.Priority;
+import com.grayfox.server.domain.Poi;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PoiFoursquareDaoTest {
+
+    private FoursquareApi foursquareApi;
+    private FoursquareRateLimiter rateLimiter;
+    private PoiFoursquareDao poiFoursquareDao;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        foursquareApi = mock(FoursquareApi.class);
+        FoursquareApiFactory foursquareApiFactory = mock(FoursquareApiFactory.class);
+        when(foursquareApiFactory.get(any(Locale.class))).thenReturn(foursquareApi);
+        FoursquareResponseCache responseCache = mock(FoursquareResponseCache.class);
+        when(responseCache.get(anyString(), anyString(), any(), any())).thenAnswer(invocation -> ((Supplier<Result<?>>) invocation.getArguments()[3]).get());
+        rateLimiter = mock(FoursquareRateLimiter.class);
+        when(rateLimiter.call(any(), any())).thenAnswer(invocation -> ((Supplier<Result<?>>) invocation.getArguments()[1]).get());
+        poiFoursquareDao = new PoiFoursquareDao();
+        ReflectionTestUtils.setField(poiFoursquareDao, "foursquareApiFactory", foursquareApiFactory);
+        ReflectionTestUtils.setField(poiFoursquareDao, "responseCache", responseCache);
+        ReflectionTestUtils.setField(poiFoursquareDao, "requestCoalescer", new FoursquareRequestCoalescer());
+        ReflectionTestUtils.setField(poiFoursquareDao, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(poiFoursquareDao, "prefetchExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(poiFoursquareDao, "prefetchCandidates", 3);
+
+        Venue seed = venue("seed", "s");
+        Result<Venue> seedResult = ok(seed);
+        when(foursquareApi.getVenue("seed")).thenReturn(seedResult);
+    }
+
+    @Test
+    public void testRouteFallsBackToPrefetchedCandidate() {
+        Result<Group<Venue>> fromSeed = ok(group(venue("a", "1"), venue("b", "2"), venue("c", "3")));
+        Result<Group<Venue>> fromA = error();
+        Result<Group<Venue>> fromB = ok(group(venue("a", "1"), venue("d", "4")));
+        Result<Group<Venue>> fromC = error();
+        Result<Group<Venue>> fromD = ok(group(venue("e", "4"), venue("f", "5")));
+        when(foursquareApi.getNextVenues("seed")).thenReturn(fromSeed);
+        when(foursquareApi.getNextVenues("a")).thenReturn(fromA);
+        when(foursquareApi.getNextVenues("b")).thenReturn(fromB);
+        when(foursquareApi.getNextVenues("c")).thenReturn(fromC);
+        when(foursquareApi.getNextVenues("d")).thenReturn(fromD);
+
+        assertThat(foursquareIds(poiFoursquareDao.findNext("seed", 4, Locale.ROOT))).containsExactly("a", "d", "f");
+        verify(foursquareApi, times(1)).getNextVenues("a");
+        verify(foursquareApi, times(1)).getNextVenues("b");
+        verify(foursquareApi, times(1)).getNextVenues("c");
+        verify(foursquareApi, never()).getNextVenues("f");
+        verify(rateLimiter, times(2)).call(eq(Priority.BACKGROUND), any());
+    }
+
+    @Test
+    public void testShedPrefetchIsRequestedAgainWhenNeeded() {
+        doThrow(new DaoException.Builder()
+            .messageKey("foursquare.rate_limit.error")
+            .withoutStackTrace()
+            .build()).when(rateLimiter).call(eq(Priority.BACKGROUND), any());
+        Result<Group<Venue>> fromSeed = ok(group(venue("a", "1"), venue("b", "2")));
+        Result<Group<Venue>> fromA = error();
+        Result<Group<Venue>> fromB = ok(group(venue("d", "4")));
+        when(foursquareApi.getNextVenues("seed")).thenReturn(fromSeed);
+        when(foursquareApi.getNextVenues("a")).thenReturn(fromA);
+        when(foursquareApi.getNextVenues("b")).thenReturn(fromB);
+
+        assertThat(foursquareIds(poiFoursquareDao.findNext("seed", 3, Locale.ROOT))).containsExactly("a", "d");
+        verify(rateLimiter, times(1)).call(eq(Priority.BACKGROUND), any());
+    }
+
+    @Test
+    public void testRouteWithoutPrefetchFailsOnFirstError() {
+        ReflectionTestUtils.setField(poiFoursquareDao, "prefetchCandidates", 0);
+        Result<Group<Venue>> fromSeed = ok(group(venue("a", "1"), venue("b", "2")));
+        Result<Group<Venue>> fromA = error();
+        when(foursquareApi.getNextVenues("seed")).thenReturn(fromSeed);
+        when(foursquareApi.getNextVenues("a")).thenReturn(fromA);
+
+        assertThatThrownBy(() -> poiFoursquareDao.findNext("seed", 4, Locale.ROOT)).isInstanceOf(DaoException.class);
+        verify(foursquareApi, never()).getNextVenues("b");
+    }
+
+    @Test
+    public void testRouteEndsWhenNoCandidateIsLeft() {
+        Result<Group<Venue>> fromSeed = ok(group(venue("a", "1")));
+        Result<Group<Venue>> fromA = ok(group(venue("seed", "s"), venue("b", "1")));
+        when(foursquareApi.getNextVenues("seed")).thenReturn(fromSeed);
+        when(foursquareApi.getNextVenues("a")).thenReturn(fromA);
+
+        assertThat(foursquareIds(poiFoursquareDao.findNext("seed", 6, Locale.ROOT))).containsExactly("a");
+    }
+
+    private Venue venue(String id, String categoryId) {
+        Category category = mock(Category.class);
+        when(category.getId()).thenReturn(categoryId);
+        when(category.getIcon()).thenReturn(mock(Icon.class));
+        Venue venue = mock(Venue.class);
+        when(venue.getId()).thenReturn(id);
+        when(venue.getLocation()).thenReturn(mock(Location.class));
+        when(venue.getCategories()).thenReturn(new Category[] {category});
+        return venue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Group<Venue> group(Venue... venues) {
+        Group<Venue> group = mock(Group.class);
+        when(group.getItems()).thenReturn(Arrays.asList(venues));
+        return group;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Result<T> ok(T response) {
+        Meta meta = mock(Meta.class);
+        when(meta.getCode()).thenReturn(200);
+        Result<T> result = mock(Result.class);
+        when(result.getMeta()).thenReturn(meta);
+        when(result.getResponse()).thenReturn(response);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Result<T> error() {
+        Meta meta = mock(Meta.class);
+        when(meta.getCode()).thenReturn(500);
+        when(meta.getErrorDetail()).thenReturn("error");
+        Result<T> result = mock(Result.class);
+        when(result.getMeta()).thenReturn(meta);
+        return result;
+    }
+
+    private List<String> foursquareIds(List<Poi> pois) {
+        return pois.stream().map(Poi::getFoursquareId).collect(Collectors.toList());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.grayfox.server.util.Constants;
+
+import org.junit.Test;
+
+public class CursorTest {
+
+    @Test
+    public void testParseOk() {
+        Cursor expectedCursor = new Cursor(45.12345678901234, "4c2ec541ac0ab713fa9b1b1e");
+
+        Cursor actualCursor = Cursor.parse(expectedCursor.stringValue());
+
+        assertThat(actualCursor).isNotNull().isEqualTo(expectedCursor);
+        assertThat(expectedCursor.stringValue()).matches(Constants.Regexs.CURSOR);
+    }
+
+    @Test
+    public void testParseError() {
+        assertThatThrownBy(() -> Cursor.parse(null))
+            .isInstanceOf(DomainException.class)
+            .hasMessage("Cursor must not be null");
+
+        assertThatThrownBy(() -> Cursor.parse("bm90LWEtY3Vyc29y"))
+            .isInstanceOf(DomainException.class)
+            .hasMessageContaining("Incorrect cursor format");
+
+        assertThatThrownBy(() -> Cursor.parse("a string"))
+            .isInstanceOf(DomainException.class)
+            .hasMessageContaining("Incorrect cursor format");
+    }
+
+    @Test
+    public void testCompareTo() {
+        assertThat(new Cursor(10d, "b")).isLessThan(new Cursor(20d, "a"));
+        assertThat(new Cursor(10d, "a")).isLessThan(new Cursor(10d, "b"));
+        assertThat(new Cursor(10d, "a").compareTo(new Cursor(10d, "a"))).isZero();
+    }
+}
\ No newline at end of file
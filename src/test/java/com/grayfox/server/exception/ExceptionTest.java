@@ -179,4 +179,24 @@ public class ExceptionTest {
         assertThat(exception.getMessageKey()).isNotNull().isNotEmpty().isEqualTo(MESSAGE_WITH_ARGS_KEY);
         assertThat(exception.getMessageArguments()).isNotNull().isNotEmpty().hasSameSizeAs(MESSAGE_ARGS).isEqualTo(MESSAGE_ARGS);
     }
+
+    @Test
+    public void testExceptionWithoutStackTrace() {
+        ServiceException exception = new ServiceException.Builder()
+            .messageKey(MESSAGE_KEY)
+            .withoutStackTrace()
+            .build();
+        assertThat(exception).hasNoCause().hasMessage(MESSAGE);
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(exception.hasMessageArguments()).isFalse();
+
+        exception = new ServiceException.Builder()
+            .messageKey(MESSAGE_WITH_ARGS_KEY)
+            .addMessageArgument(MESSAGE_ARGS[0])
+            .addMessageArgument(MESSAGE_ARGS[1])
+            .build();
+        assertThat(exception).hasNoCause().hasMessage(MESSAGE_WITH_ARGS);
+        assertThat(exception.getStackTrace()).isNotEmpty();
+        assertThat(exception.hasMessageArguments()).isTrue();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.grayfox.server.dao.RecommendationDao;
+import com.grayfox.server.domain.Location;
+import com.grayfox.server.domain.Page;
+import com.grayfox.server.domain.Recommendation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PoiServiceConcurrentTest {
+
+    private static final long TIMEOUT_MILLIS = 200;
+
+    private ExecutorService recommendationExecutor;
+    private RecommendationDao recommendationDao;
+    private PoiService poiService;
+
+    @Before
+    public void setUp() {
+        recommendationExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        recommendationDao = mock(RecommendationDao.class);
+        poiService = new PoiService();
+        ReflectionTestUtils.setField(poiService, "recommendationDao", recommendationDao);
+        ReflectionTestUtils.setField(poiService, "recommendationExecutor", recommendationExecutor);
+        ReflectionTestUtils.setField(poiService, "concurrent", true);
+        ReflectionTestUtils.setField(poiService, "selfTimeoutMillis", TIMEOUT_MILLIS);
+        ReflectionTestUtils.setField(poiService, "socialTimeoutMillis", TIMEOUT_MILLIS);
+        ReflectionTestUtils.setField(poiService, "globalTimeoutMillis", TIMEOUT_MILLIS);
+    }
+
+    @After
+    public void tearDown() {
+        recommendationExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testTimedOutSourceIsInterrupted() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(recommendationDao.findNearestWithHighRating(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return Collections.emptyList();
+        });
+
+        long startTime = System.currentTimeMillis();
+        Page<Recommendation> page = poiService.recommend(null, Location.parse("19.04,-98.19"), 100, null, null, Locale.ROOT);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(System.currentTimeMillis() - startTime).isLessThan(5_000);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testSaturatedExecutorSkipsSource() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        recommendationExecutor.execute(() -> awaitQuietly(release));
+        recommendationExecutor.execute(() -> awaitQuietly(release));
+
+        try {
+            Page<Recommendation> page = poiService.recommend(null, Location.parse("19.04,-98.19"), 100, null, null, Locale.ROOT);
+
+            assertThat(page.getItems()).isEmpty();
+            verify(recommendationDao, never()).findNearestWithHighRating(any(), any(), any(), any(), any());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import com.grayfox.server.dao.CredentialDao;
+import com.grayfox.server.dao.RecommendationDao;
+import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.Cursor;
+import com.grayfox.server.domain.Location;
+import com.grayfox.server.domain.Page;
+import com.grayfox.server.domain.Poi;
+import com.grayfox.server.domain.Recommendation;
+import com.grayfox.server.util.DistanceRanker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.stubbing.Answer;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PoiServicePagingTest {
+
+    private static final Location ORIGIN = Location.parse("19.04,-98.19");
+    private static final int RADIUS = 1000;
+
+    private RecommendationDao recommendationDao;
+    private PoiService poiService;
+
+    @Before
+    public void setUp() {
+        CredentialDao credentialDao = mock(CredentialDao.class);
+        when(credentialDao.exists(anyString())).thenReturn(true);
+        recommendationDao = mock(RecommendationDao.class);
+        poiService = new PoiService();
+        ReflectionTestUtils.setField(poiService, "credentialDao", credentialDao);
+        ReflectionTestUtils.setField(poiService, "recommendationDao", recommendationDao);
+        ReflectionTestUtils.setField(poiService, "concurrent", false);
+    }
+
+    @Test
+    public void testPagesMatchUnpagedRecommendations() {
+        when(recommendationDao.findNearestByCategoriesLiked(anyString(), any(), any(), any(), any(), any())).thenAnswer(source(3,
+                recommendation("s1", "A", 150, Recommendation.Type.SELF),
+                recommendation("s2", "B", 450, Recommendation.Type.SELF)));
+        when(recommendationDao.findNearestByCategoriesLikedByFriends(anyString(), any(), any(), any(), any(), any())).thenAnswer(source(3,
+                recommendation("f1", "C", 250, Recommendation.Type.SOCIAL)));
+        when(recommendationDao.findNearestWithHighRating(any(), any(), any(), any(), any())).thenAnswer(source(2,
+                recommendation("g1", "D", 100, Recommendation.Type.GLOBAL),
+                recommendation("g2", "E", 300, Recommendation.Type.GLOBAL),
+                recommendation("g3", "F", 500, Recommendation.Type.GLOBAL)));
+
+        List<String> unpaged = foursquareIds(poiService.recommend("fakeToken", ORIGIN, RADIUS, null, null, Locale.ROOT).getItems());
+
+        assertThat(unpaged).containsExactly("g1", "s1", "f1", "g2", "s2", "g3");
+        assertThat(allPages("fakeToken", 2)).containsExactlyElementsOf(unpaged);
+    }
+
+    @Test
+    public void testCategoriesAreDedupedPerPage() {
+        when(recommendationDao.findNearestWithHighRating(any(), any(), any(), any(), any())).thenAnswer(source(2,
+                recommendation("g1", "X", 100, Recommendation.Type.GLOBAL),
+                recommendation("g2", "Y", 200, Recommendation.Type.GLOBAL),
+                recommendation("g3", "X", 300, Recommendation.Type.GLOBAL)));
+
+        assertThat(foursquareIds(poiService.recommend(null, ORIGIN, RADIUS, null, null, Locale.ROOT).getItems())).containsExactly("g1", "g2");
+        assertThat(allPages(null, 2)).containsExactly("g1", "g2", "g3");
+    }
+
+    @Test
+    public void testMaxLimitDoesNotOverflow() {
+        when(recommendationDao.findNearestWithHighRating(any(), any(), any(), any(), any())).thenAnswer(source(2,
+                recommendation("g1", "X", 100, Recommendation.Type.GLOBAL),
+                recommendation("g2", "Y", 200, Recommendation.Type.GLOBAL)));
+
+        assertThat(foursquareIds(poiService.recommend(null, ORIGIN, RADIUS, null, Integer.MAX_VALUE, Locale.ROOT).getItems())).containsExactly("g1", "g2");
+    }
+
+    private List<String> allPages(String accessToken, int limit) {
+        List<String> foursquareIds = new ArrayList<>();
+        Cursor cursor = null;
+        do {
+            Page<Recommendation> page = poiService.recommend(accessToken, ORIGIN, RADIUS, cursor, limit, Locale.ROOT);
+            foursquareIds.addAll(foursquareIds(page.getItems()));
+            cursor = page.getNextCursor() != null ? Cursor.parse(page.getNextCursor().stringValue()) : null;
+        } while (cursor != null);
+        return foursquareIds;
+    }
+
+    private Answer<List<Recommendation>> source(int cursorIndex, Recommendation... recommendations) {
+        DistanceRanker ranker = new DistanceRanker(ORIGIN);
+        return invocation -> {
+            Integer limit = (Integer) invocation.getArguments()[cursorIndex + 1];
+            return ranker.nearest(Arrays.asList(recommendations), recommendation -> recommendation.getPoi().getLocation(),
+                    recommendation -> recommendation.getPoi().getFoursquareId(), (Cursor) invocation.getArguments()[cursorIndex], limit != null ? limit : Integer.MAX_VALUE);
+        };
+    }
+
+    private Recommendation recommendation(String foursquareId, String categoryFoursquareId, int meters, Recommendation.Type type) {
+        Category category = new Category();
+        category.setFoursquareId(categoryFoursquareId);
+        Location location = new Location();
+        location.setLatitude(ORIGIN.getLatitude() + Math.toDegrees(meters / 6_371_000d));
+        location.setLongitude(ORIGIN.getLongitude());
+        Poi poi = new Poi();
+        poi.setFoursquareId(foursquareId);
+        poi.setLocation(location);
+        poi.setCategories(Collections.singleton(category));
+        Recommendation recommendation = new Recommendation();
+        recommendation.setType(type);
+        recommendation.setPoi(poi);
+        return recommendation;
+    }
+
+    private List<String> foursquareIds(List<Recommendation> recommendations) {
+        return recommendations.stream().map(recommendation -> recommendation.getPoi().getFoursquareId()).collect(Collectors.toList());
+    }
+}
\ No newline at end of file
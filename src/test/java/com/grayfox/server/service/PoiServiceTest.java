@@ -16,6 +16,7 @@
 package com.grayfox.server.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -24,8 +25,11 @@ import java.util.Locale;
 
 import javax.inject.Inject;
 
+import com.grayfox.server.dao.DaoException;
+import com.grayfox.server.dao.jdbc.SearchCellJdbcDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Location;
+import com.grayfox.server.domain.Page;
 import com.grayfox.server.domain.Poi;
 import com.grayfox.server.test.config.TestConfig;
 
@@ -36,6 +40,8 @@ import org.junit.runner.RunWith;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
 @Rollback
@@ -44,6 +50,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class PoiServiceTest {
 
     @Inject private PoiService poiService;
+    @Inject private SearchCellJdbcDao searchCellLocalDao;
 
     @Test
     @Transactional
@@ -66,9 +73,61 @@ public class PoiServiceTest {
         p2.setCategories(new HashSet<>(Arrays.asList(category)));
 
         List<Poi> expectedPois = Arrays.asList(p1, p2);
-        List<Poi> actualPois = poiService.getNearestPoisByCategory(Location.parse("19.04365,-98.197968"), 800, category.getFoursquareId(), Locale.ROOT);
+        Page<Poi> actualPois = poiService.getNearestPoisByCategory(Location.parse("19.04365,-98.197968"), 800, category.getFoursquareId(), null, null, Locale.ROOT);
 
-        assertThat(actualPois).isNotNull().isNotEmpty().doesNotContainNull().hasSameSizeAs(expectedPois).containsOnlyElementsOf(expectedPois);
+        assertThat(actualPois.getItems()).isNotNull().isNotEmpty().doesNotContainNull().hasSameSizeAs(expectedPois).containsOnlyElementsOf(expectedPois);
+        assertThat(actualPois.getNextCursor()).isNull();
+    }
+
+    @Test
+    @Transactional
+    public void testGetNearestPoisByCategoryFromLocalSearch() {
+        Category category = new Category();
+        category.setFoursquareId("4bf58dd8d48988d151941735");
+        category.setName("Taco Place");
+        category.setIconUrl("https://ss3.4sqi.net/img/categories_v2/food/taco_88.png");
+
+        Poi p1 = new Poi();
+        p1.setFoursquareId("4cdd6a06930af04d92fb9597");
+        p1.setName("Taquería Los Ángeles");
+        p1.setLocation(Location.parse("19.04336700060403,-98.19716334342957"));
+        p1.setCategories(new HashSet<>(Arrays.asList(category)));
+
+        Poi p2 = new Poi();
+        p2.setFoursquareId("4c3ce8087c1ee21ebd388d71");
+        p2.setName("Antigua Taquería La Oriental");
+        p2.setLocation(Location.parse("19.044926274591635,-98.19751471281052"));
+        p2.setCategories(new HashSet<>(Arrays.asList(category)));
+
+        searchCellLocalDao.save(Location.parse("19.04365,-98.197968"), 800, category.getFoursquareId(), Arrays.asList(p1, p2));
+        PoiService target = (PoiService) AopTestUtils.getTargetObject(poiService);
+        ReflectionTestUtils.setField(target, "localSearchEnabled", true);
+        try {
+            Location nearby = Location.parse("19.0443,-98.1976");
+            List<Poi> expectedPois = Arrays.asList(p1, p2);
+            Page<Poi> actualPois = poiService.getNearestPoisByCategory(nearby, 500, category.getFoursquareId(), null, null, Locale.ROOT);
+
+            assertThat(actualPois.getItems()).isNotNull().isNotEmpty().doesNotContainNull().hasSameSizeAs(expectedPois).containsOnlyElementsOf(expectedPois);
+            assertThatThrownBy(() -> poiService.getNearestPoisByCategory(nearby, 750, category.getFoursquareId(), null, null, Locale.ROOT))
+                .isInstanceOf(DaoException.class);
+        } finally {
+            ReflectionTestUtils.setField(target, "localSearchEnabled", false);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void testGetNearestPoisByCategoryPaginated() {
+        Location location = Location.parse("19.04365,-98.197968");
+        String categoryFoursquareId = "4bf58dd8d48988d151941735";
+
+        Page<Poi> firstPage = poiService.getNearestPoisByCategory(location, 800, categoryFoursquareId, null, 1, Locale.ROOT);
+        assertThat(firstPage.getItems()).hasSize(1);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        Page<Poi> secondPage = poiService.getNearestPoisByCategory(location, 800, categoryFoursquareId, firstPage.getNextCursor(), 1, Locale.ROOT);
+        assertThat(secondPage.getItems()).hasSize(1).doesNotContainAnyElementsOf(firstPage.getItems());
+        assertThat(secondPage.getNextCursor()).isNull();
     }
 
     @Test
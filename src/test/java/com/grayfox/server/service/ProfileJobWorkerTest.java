@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.grayfox.server.dao.ProfileJobDao;
+import com.grayfox.server.dao.SocialNetworkProfileDao;
+import com.grayfox.server.domain.Category;
+import com.grayfox.server.domain.ProfileJob;
+import com.grayfox.server.domain.User;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ProfileJobWorkerTest {
+
+    private static final long LEASE_MILLIS = 60_000;
+    private static final long BACKOFF_MILLIS = 1_000;
+
+    private ProfileJobDao profileJobDao;
+    private UserService userService;
+    private SocialNetworkProfileDao foursquareProfileDao;
+    private ProfileJobWorker profileJobWorker;
+
+    @Before
+    public void setUp() {
+        profileJobDao = mock(ProfileJobDao.class);
+        userService = mock(UserService.class);
+        foursquareProfileDao = mock(SocialNetworkProfileDao.class);
+        when(userService.saveProfile(any(), any(), anyLong())).thenReturn(true);
+        when(userService.saveFriendsLikes(any(), any(), any(), anyLong())).thenReturn(true);
+        profileJobWorker = new ProfileJobWorker();
+        ReflectionTestUtils.setField(profileJobWorker, "profileJobDao", profileJobDao);
+        ReflectionTestUtils.setField(profileJobWorker, "userService", userService);
+        ReflectionTestUtils.setField(profileJobWorker, "foursquareProfileDao", foursquareProfileDao);
+        ReflectionTestUtils.setField(profileJobWorker, "leaseMillis", LEASE_MILLIS);
+        ReflectionTestUtils.setField(profileJobWorker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(profileJobWorker, "backoffMillis", BACKOFF_MILLIS);
+        ReflectionTestUtils.setField(profileJobWorker, "checkpointFriends", 2);
+    }
+
+    @Test
+    public void testNewJobSavesProfileFirst() {
+        ProfileJob job = newJob(1, null);
+        User user = new User();
+        user.setFoursquareId("self");
+        when(foursquareProfileDao.collectProfile("fakeFoursquareToken")).thenReturn(user);
+        when(userService.saveProfile(job, user, LEASE_MILLIS)).thenAnswer(invocation -> {
+            job.setUserFoursquareId("self");
+            job.setPendingFriendFoursquareIds(Arrays.asList("1"));
+            return true;
+        });
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("1"))).thenReturn(likesOf("1"));
+
+        profileJobWorker.process(job);
+
+        verify(userService).saveFriendsLikes(job, likesOf("1"), Collections.emptyList(), LEASE_MILLIS);
+        verify(profileJobDao).delete(job);
+    }
+
+    @Test
+    public void testJobResumesFromCheckpoint() {
+        ProfileJob job = newJob(2, Arrays.asList("1", "2", "3"));
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("1", "2"))).thenReturn(likesOf("1", "2"));
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("3"))).thenReturn(likesOf("3"));
+
+        profileJobWorker.process(job);
+
+        verify(foursquareProfileDao, never()).collectProfile(any());
+        verify(userService, never()).saveProfile(any(), any(), anyLong());
+        verify(userService).saveFriendsLikes(job, likesOf("1", "2"), Arrays.asList("3"), LEASE_MILLIS);
+        verify(userService).saveFriendsLikes(job, likesOf("3"), Collections.emptyList(), LEASE_MILLIS);
+        verify(profileJobDao).delete(job);
+    }
+
+    @Test
+    public void testFailedFriendsAreLeftPending() {
+        ProfileJob job = newJob(2, Arrays.asList("1", "2", "3"));
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("1", "2"))).thenReturn(likesOf("1"));
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("3"))).thenReturn(likesOf("3"));
+
+        profileJobWorker.process(job);
+
+        verify(userService).saveFriendsLikes(job, likesOf("1"), Arrays.asList("3", "2"), LEASE_MILLIS);
+        verify(userService).saveFriendsLikes(job, likesOf("3"), Arrays.asList("2"), LEASE_MILLIS);
+        verify(profileJobDao).release(job, 2 * BACKOFF_MILLIS);
+        verify(profileJobDao, never()).delete(any());
+    }
+
+    @Test
+    public void testFailedFriendsAreDroppedOnLastAttempt() {
+        ProfileJob job = newJob(3, Arrays.asList("1"));
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("1"))).thenReturn(likesOf());
+
+        profileJobWorker.process(job);
+
+        verify(userService).saveFriendsLikes(job, likesOf(), Arrays.asList("1"), LEASE_MILLIS);
+        verify(profileJobDao).delete(job);
+        verify(profileJobDao, never()).release(any(), anyLong());
+    }
+
+    @Test
+    public void testJobIsDiscardedAfterMaxAttempts() {
+        ProfileJob job = newJob(4, Arrays.asList("1"));
+
+        profileJobWorker.process(job);
+
+        verify(foursquareProfileDao, never()).collectFriendsLikes(any(), any());
+        verify(profileJobDao).delete(job);
+    }
+
+    @Test
+    public void testFailedJobIsReleasedWithBackoff() {
+        ProfileJob job = newJob(1, null);
+        when(foursquareProfileDao.collectProfile("fakeFoursquareToken")).thenThrow(new IllegalStateException());
+
+        profileJobWorker.process(job);
+
+        verify(profileJobDao).release(job, BACKOFF_MILLIS);
+        verify(profileJobDao, never()).delete(any());
+    }
+
+    @Test
+    public void testJobStopsWhenLeaseExpired() {
+        ProfileJob job = newJob(2, Arrays.asList("1", "2", "3"));
+        when(foursquareProfileDao.collectFriendsLikes("fakeFoursquareToken", Arrays.asList("1", "2"))).thenReturn(likesOf("1", "2"));
+        when(userService.saveFriendsLikes(eq(job), any(), any(), anyLong())).thenReturn(false);
+
+        profileJobWorker.process(job);
+
+        verify(foursquareProfileDao, never()).collectFriendsLikes("fakeFoursquareToken", Arrays.asList("3"));
+        verify(profileJobDao, never()).release(any(), anyLong());
+        verify(profileJobDao, never()).delete(any());
+    }
+
+    @Test
+    public void testRejectedJobIsLeftToItsLease() {
+        ProfileJob job = newJob(1, null);
+        when(profileJobDao.claim(anyInt(), anyLong())).thenReturn(Arrays.asList(job));
+        ReflectionTestUtils.setField(profileJobWorker, "profileJobExecutor", (Executor) command -> {
+            throw new RejectedExecutionException();
+        });
+
+        profileJobWorker.poll();
+
+        verify(foursquareProfileDao, never()).collectProfile(any());
+        verify(profileJobDao, never()).release(any(), anyLong());
+        verify(profileJobDao, never()).delete(any());
+    }
+
+    private ProfileJob newJob(int attempts, List<String> pendingFriendFoursquareIds) {
+        ProfileJob job = new ProfileJob();
+        job.setId(1L);
+        job.setAccessToken("fakeToken");
+        job.setFoursquareAccessToken("fakeFoursquareToken");
+        job.setUserFoursquareId(pendingFriendFoursquareIds != null ? "self" : null);
+        job.setPendingFriendFoursquareIds(pendingFriendFoursquareIds);
+        job.setAttempts(attempts);
+        return job;
+    }
+
+    private Map<String, Set<Category>> likesOf(String... friendFoursquareIds) {
+        Map<String, Set<Category>> likes = new HashMap<>();
+        for (String friendFoursquareId : friendFoursquareIds) likes.put(friendFoursquareId, Collections.emptySet());
+        return likes;
+    }
+}
\ No newline at end of file
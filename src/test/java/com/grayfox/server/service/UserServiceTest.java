@@ -25,9 +25,11 @@ import java.util.Locale;
 
 import javax.inject.Inject;
 
+import com.grayfox.server.dao.ProfileJobDao;
 import com.grayfox.server.dao.UserDao;
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Credential;
+import com.grayfox.server.domain.ProfileJob;
 import com.grayfox.server.domain.User;
 import com.grayfox.server.test.config.TestConfig;
 import com.grayfox.server.test.dao.jdbc.UtilJdbcDao;
@@ -49,6 +51,8 @@ public class UserServiceTest {
     @Inject private UserService userService;
     @Inject private UtilJdbcDao utilJdbcDao;
     @Inject private UserDao userDao;
+    @Inject private ProfileJobDao profileJobDao;
+    @Inject private ProfileJobWorker profileJobWorker;
 
     @Before
     public void setUp() {
@@ -77,7 +81,23 @@ public class UserServiceTest {
         assertThatThrownBy(() -> userService.addLike(credential.getAccessToken(), "id")).isInstanceOf(ServiceException.class);
         assertThatThrownBy(() -> userService.removeLike(credential.getAccessToken(), "id")).isInstanceOf(ServiceException.class);
 
-        userService.generateProfileUsingFoursquare(credential);
+        List<ProfileJob> jobs = profileJobDao.claim(10, 60_000);
+        assertThat(jobs).hasSize(1);
+
+        ProfileJob staleJob = new ProfileJob();
+        staleJob.setId(jobs.get(0).getId());
+        staleJob.setAccessToken(jobs.get(0).getAccessToken());
+        staleJob.setFoursquareAccessToken(jobs.get(0).getFoursquareAccessToken());
+        staleJob.setAttempts(jobs.get(0).getAttempts() - 1);
+        User staleUser = new User();
+        staleUser.setName("Stale");
+        staleUser.setFoursquareId("34468234");
+
+        assertThat(userService.saveProfile(staleJob, staleUser, 60_000)).isFalse();
+        assertThat(userDao.exists(staleUser.getFoursquareId())).isFalse();
+
+        profileJobWorker.process(jobs.get(0));
+        assertThat(profileJobDao.claim(10, 60_000)).isEmpty();
         credential.setNew(false);
 
         assertThat(userService.registerUsingFoursquare("fakeCode")).isNotNull().isEqualTo(credential);
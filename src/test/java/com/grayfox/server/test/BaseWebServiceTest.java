@@ -26,10 +26,13 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 
 public abstract class BaseWebServiceTest extends JerseyTest {
 
+    protected AnnotationConfigApplicationContext applicationContext;
+
     @Override
     protected Application configure() {
+        applicationContext = new AnnotationConfigApplicationContext(TestConfig.class);
         return new ResourceConfig()
             .packages("com.grayfox.server.ws.rest")
-            .property("contextConfig", new AnnotationConfigApplicationContext(TestConfig.class));
+            .property("contextConfig", applicationContext);
     }
 }
\ No newline at end of file
@@ -25,6 +25,10 @@ import javax.annotation.PreDestroy;
 import com.foursquare4j.FoursquareApi;
 
 import com.grayfox.server.config.MainConfig;
+import com.grayfox.server.dao.foursquare.FoursquareApiFactory;
+import com.grayfox.server.dao.foursquare.FoursquareRateLimiter;
+import com.grayfox.server.dao.foursquare.FoursquareRequestCoalescer;
+import com.grayfox.server.dao.foursquare.FoursquareResponseCache;
 
 import com.squareup.okhttp.mockwebserver.MockWebServer;
 
@@ -38,7 +42,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @Configuration
 @PropertySource("classpath:test-config.properties")
-@Import({MainConfig.DataConfig.class, TestConfig.BeanConfig.class})
+@Import({MainConfig.DataConfig.class, MainConfig.ExecutorConfig.class, TestConfig.BeanConfig.class})
 public class TestConfig {
 
     @Bean
@@ -73,6 +77,26 @@ public class TestConfig {
             return foursquareApi;
         }
 
+        @Bean
+        public FoursquareApiFactory foursquareApiFactory() {
+            return new FoursquareApiFactory();
+        }
+
+        @Bean
+        public FoursquareResponseCache foursquareResponseCache() {
+            return new FoursquareResponseCache();
+        }
+
+        @Bean
+        public FoursquareRateLimiter foursquareRateLimiter() {
+            return new FoursquareRateLimiter();
+        }
+
+        @Bean
+        public FoursquareRequestCoalescer foursquareRequestCoalescer() {
+            return new FoursquareRequestCoalescer();
+        }
+
         @Bean
         public MockWebServer mockWebServer() {
             return mockWebServer;
@@ -15,6 +15,10 @@
  */
 package com.grayfox.server.test.dao.foursquare;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 import javax.inject.Inject;
 
 import com.grayfox.server.test.util.HttpStatus;
@@ -23,6 +27,7 @@ import com.squareup.okhttp.mockwebserver.MockResponse;
 
 import com.foursquare4j.FoursquareApi;
 import com.grayfox.server.dao.foursquare.FoursquareProfileDao;
+import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.User;
 import com.squareup.okhttp.mockwebserver.MockWebServer;
 import org.springframework.stereotype.Repository;
@@ -55,4 +60,32 @@ public class MockFoursquareProfileDao extends FoursquareProfileDao {
         }
         return collectUserData(foursquareApi);
     }
+
+    @Override
+    public User collectProfile(String accessToken) {
+        if (!"fakeToken".equals(accessToken)) {
+            mockWebServer.enqueue(new MockResponse()
+                .setStatus(HttpStatus.OK.toString())
+                .setBody(Utils.getContentFromFileInClasspath("responses/generic_error.json")));
+        } else {
+            mockWebServer.enqueue(new MockResponse()
+                .setStatus(HttpStatus.OK.toString())
+                .setBody(Utils.getContentFromFileInClasspath("responses/user.json")));
+            mockWebServer.enqueue(new MockResponse()
+                .setStatus(HttpStatus.OK.toString())
+                .setBody(Utils.getContentFromFileInClasspath("responses/venuelikes_self.json")));
+            mockWebServer.enqueue(new MockResponse()
+                .setStatus(HttpStatus.OK.toString())
+                .setBody(Utils.getContentFromFileInClasspath("responses/friends.json")));
+        }
+        return collectProfile(foursquareApi);
+    }
+
+    @Override
+    public Map<String, Set<Category>> collectFriendsLikes(String accessToken, Collection<String> friendFoursquareIds) {
+        friendFoursquareIds.forEach(friendFoursquareId -> mockWebServer.enqueue(new MockResponse()
+            .setStatus(HttpStatus.OK.toString())
+            .setBody(Utils.getContentFromFileInClasspath("responses/venuelikes_friends.json"))));
+        return collectFriendsLikes(foursquareApi, friendFoursquareIds);
+    }
 }
\ No newline at end of file
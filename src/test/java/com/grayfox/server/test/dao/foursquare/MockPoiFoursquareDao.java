@@ -56,7 +56,7 @@ public class MockPoiFoursquareDao extends PoiFoursquareDao {
                 .setStatus(HttpStatus.OK.toString())
                 .setBody(Utils.getContentFromFileInClasspath("responses/generic_error.json")));
         }
-        return fetchNext(foursquareApi, poiFoursquareId, limit);
+        return fetchNext(foursquareApi, poiFoursquareId, limit, locale);
     }
 
     @Override
@@ -70,6 +70,6 @@ public class MockPoiFoursquareDao extends PoiFoursquareDao {
                 .setStatus(HttpStatus.OK.toString())
                 .setBody(Utils.getContentFromFileInClasspath("responses/generic_error.json")));
         }
-        return fetchNearestByCategory(foursquareApi, location, radius, categoryFoursquareId);
+        return fetchNearestByCategory(foursquareApi, location, radius, categoryFoursquareId, locale);
     }
 }
\ No newline at end of file
@@ -18,7 +18,10 @@ package com.grayfox.server.test.dao.jdbc;
 import java.util.List;
 import java.util.Locale;
 
+import javax.inject.Inject;
+
 import com.grayfox.server.dao.jdbc.CategoryJdbcDao;
+import com.grayfox.server.dao.jdbc.CategorySearchIndex;
 import com.grayfox.server.domain.Category;
 
 import org.springframework.context.annotation.Primary;
@@ -28,9 +31,12 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class MockCategoryJdbcDao extends CategoryJdbcDao {
 
+    @Inject private CategorySearchIndex searchIndex;
+
     @Override
     public List<Category> findByPartialName(String partialName, Locale locale) {
         insertMockData();
+        searchIndex.refresh();
         return super.findByPartialName(partialName, locale);
     }
 
@@ -23,6 +23,7 @@ import javax.sql.DataSource;
 
 import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Poi;
+import com.grayfox.server.util.GeoCells;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -48,7 +49,7 @@ public class UtilJdbcDao {
     }
 
     public void savePoi(Poi poi) {
-        jdbcTemplate.update("CREATE (:Poi {name:{1}, latitude:{2}, longitude:{3}, foursquareId:{4}, foursquareRating:{5}})", poi.getName(), poi.getLocation().getLatitude(), poi.getLocation().getLongitude(), poi.getFoursquareId(), poi.getFoursquareRating());
+        jdbcTemplate.update("CREATE (:Poi {name:{1}, latitude:{2}, longitude:{3}, foursquareId:{4}, foursquareRating:{5}, geocell:{6}})", poi.getName(), poi.getLocation().getLatitude(), poi.getLocation().getLongitude(), poi.getFoursquareId(), poi.getFoursquareRating(), GeoCells.encode(poi.getLocation()));
         if (poi.getCategories() != null) poi.getCategories().forEach(category -> jdbcTemplate.update("MATCH (p:Poi {foursquareId:{1}}), (c:Category {foursquareId:{2}}) CREATE (p)-[:IS]->(c)", poi.getFoursquareId(), category.getFoursquareId()));
     }
 
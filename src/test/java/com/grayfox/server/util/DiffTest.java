@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DiffTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiffTest.class);
+
+    @Test
+    public void testBetween() {
+        Diff<String> diff = Diff.between(Arrays.asList("1", "2", "3"), Arrays.asList("2", "3", "4", "5"));
+
+        assertThat(diff.getAdded()).containsOnly("4", "5");
+        assertThat(diff.getRemoved()).containsOnly("1");
+        assertThat(diff.isEmpty()).isFalse();
+        assertThat(Diff.between(Arrays.asList("1", "2"), Arrays.asList("2", "1")).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testMatchesListBasedDiff() {
+        List<String> oldIds = ids(0, 1_000);
+        List<String> newIds = ids(500, 1_500);
+        List<List<String>> listResult = listDiff(oldIds, newIds);
+        Diff<String> setResult = Diff.between(oldIds, newIds);
+
+        assertThat(setResult.getAdded()).hasSameSizeAs(listResult.get(0)).containsAll(listResult.get(0));
+        assertThat(setResult.getRemoved()).hasSameSizeAs(listResult.get(1)).containsAll(listResult.get(1));
+    }
+
+    @Test
+    public void testBenchmark() {
+        benchmark(1_000);
+        benchmark(10_000);
+    }
+
+    private void benchmark(int size) {
+        List<String> oldIds = ids(0, size);
+        List<String> newIds = ids(size / 2, size + size / 2);
+        for (int i = 0; i < 3; i++) {
+            listDiff(oldIds, newIds);
+            Diff.between(oldIds, newIds);
+        }
+
+        long start = System.nanoTime();
+        listDiff(oldIds, newIds);
+        long listNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Diff.between(oldIds, newIds);
+        long setNanos = System.nanoTime() - start;
+
+        LOGGER.info("Diff of {} ids: list based {} us, set based {} us ({}x)", size, listNanos / 1_000, setNanos / 1_000, listNanos / Math.max(setNanos, 1));
+    }
+
+    private List<List<String>> listDiff(List<String> oldIds, List<String> newIds) {
+        List<String> removed = new ArrayList<>(oldIds);
+        List<String> intersection = newIds.stream().filter(removed::contains).collect(Collectors.toList());
+        List<String> added = newIds.stream().filter(id -> !intersection.contains(id)).collect(Collectors.toList());
+        removed.removeAll(intersection);
+        return Arrays.asList(added, removed);
+    }
+
+    private List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) ids.add("4b" + Integer.toHexString(i * 7919));
+        return ids;
+    }
+}
\ No newline at end of file
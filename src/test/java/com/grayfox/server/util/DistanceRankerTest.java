@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.grayfox.server.domain.Cursor;
+import com.grayfox.server.domain.Location;
+
+import org.junit.Test;
+
+public class DistanceRankerTest {
+
+    @Test
+    public void testDistanceTo() {
+        DistanceRanker ranker = new DistanceRanker(Location.parse("19.043635,-98.197947"));
+        assertThat(ranker.distanceTo(Location.parse("19.043635,-98.197947"))).isEqualTo(0d);
+        assertThat(ranker.distanceTo(Location.parse("19.04336700060403,-98.19716334342957"))).isCloseTo(87.3, within(0.5));
+        assertThat(ranker.distanceTo(Location.parse("19.432608,-99.133208"))).isCloseTo(107_590d, within(500d));
+    }
+
+    @Test
+    public void testNearest() {
+        Location origin = Location.parse("19.043635,-98.197947");
+        DistanceRanker ranker = new DistanceRanker(origin);
+        Random random = new Random(7);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Location location = new Location();
+            location.setLatitude(origin.getLatitude() + (random.nextDouble() - 0.5) / 10);
+            location.setLongitude(origin.getLongitude() + (random.nextDouble() - 0.5) / 10);
+            locations.add(location);
+        }
+        List<Location> expected = new ArrayList<>(locations);
+        expected.sort(Comparator.comparingDouble(location -> acosDistance(origin, location)));
+
+        assertThat(ranker.nearest(locations, location -> location, 10)).containsExactlyElementsOf(expected.subList(0, 10));
+        assertThat(ranker.nearest(locations, location -> location, 500)).containsExactlyElementsOf(expected);
+        assertThat(ranker.nearest(locations, location -> location, 1000)).containsExactlyElementsOf(expected);
+        assertThat(ranker.nearest(locations, location -> location, 0)).isEmpty();
+        assertThat(ranker.nearest(Collections.<Location>emptyList(), location -> location, 10)).isEmpty();
+    }
+
+    @Test
+    public void testNearestKeepsOrderOfTies() {
+        Map<String, Location> locations = new HashMap<>();
+        locations.put("a", Location.parse("19.05,-98.19"));
+        locations.put("b", Location.parse("19.05,-98.19"));
+        locations.put("c", Location.parse("19.04,-98.19"));
+        DistanceRanker ranker = new DistanceRanker(Location.parse("19.04,-98.19"));
+
+        assertThat(ranker.nearest(Arrays.asList("a", "b", "c"), locations::get, 2)).containsExactly("c", "a");
+        assertThat(ranker.nearest(Arrays.asList("b", "a", "c"), locations::get, 3)).containsExactly("c", "b", "a");
+    }
+
+    @Test
+    public void testCursorIsRoundedToTheMillimeter() {
+        Map<String, Location> locations = new HashMap<>();
+        locations.put("a", Location.parse("19.04336700060403,-98.19716334342957"));
+        locations.put("b", Location.parse("19.04336700060403,-98.19716334342957"));
+        DistanceRanker ranker = new DistanceRanker(Location.parse("19.043635,-98.197947"));
+        Cursor cursor = ranker.cursorOf(locations.get("a"), "a");
+        Cursor nudged = new Cursor(Math.round((ranker.distanceTo(locations.get("a")) + 1e-9) * 1000) / 1000d, "a");
+
+        assertThat(cursor.getDistance() * 1000).isEqualTo(Math.rint(cursor.getDistance() * 1000));
+        assertThat(Cursor.parse(cursor.stringValue())).isEqualTo(cursor).isEqualTo(nudged);
+        assertThat(ranker.nearest(Arrays.asList("a", "b"), locations::get, id -> id, nudged, 2)).containsExactly("b");
+    }
+
+    private double acosDistance(Location location1, Location location2) {
+        double fi1 = Math.toRadians(location1.getLatitude());
+        double fi2 = Math.toRadians(location2.getLatitude());
+        double deltaLambda = Math.toRadians(location2.getLongitude()-location1.getLongitude());
+        return Math.acos(Math.sin(fi1)*Math.sin(fi2) + Math.cos(fi1)*Math.cos(fi2)*Math.cos(deltaLambda)) * Constants.Ints.EARTH_RADIUS;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import com.grayfox.server.domain.Location;
+
+import org.junit.Test;
+
+public class GeoCellsTest {
+
+    @Test
+    public void testEncode() {
+        assertThat(GeoCells.encode(Location.parse("57.64911,10.40744"))).isEqualTo("u4pruy");
+        assertThat(GeoCells.encode(Location.parse("-25.382708,-49.265506"))).isEqualTo("6gkzwg");
+    }
+
+    @Test
+    public void testCoveringContainsCircle() {
+        assertCircleCovered(Location.parse("19.043635,-98.197947"), 100);
+        assertCircleCovered(Location.parse("19.043635,-98.197947"), 5000);
+        assertCircleCovered(Location.parse("-33.868820,151.209296"), 800);
+        assertCircleCovered(Location.parse("64.835365,179.999"), 1500);
+    }
+
+    @Test
+    public void testCoveringIsBounded() {
+        assertThat(GeoCells.covering(Location.parse("19.043635,-98.197947"), Constants.Ints.MAX_RADIUS).size()).isLessThanOrEqualTo(Constants.Ints.MAX_COVERING_CELLS);
+        assertThat(GeoCells.covering(Location.parse("70.0,25.0"), Constants.Ints.MAX_RADIUS).size()).isLessThanOrEqualTo(Constants.Ints.MAX_COVERING_CELLS);
+        assertThatThrownBy(() -> GeoCells.covering(Location.parse("19.043635,-98.197947"), 2000000)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> GeoCells.covering(Location.parse("89.99,0.0"), 5000)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertCircleCovered(Location center, int radius) {
+        List<String> cells = GeoCells.covering(center, radius);
+        assertThat(cells).isNotEmpty().doesNotHaveDuplicates().contains(GeoCells.encode(center));
+        double angularDistance = (double) radius / Constants.Ints.EARTH_RADIUS;
+        double latitude = Math.toRadians(center.getLatitude());
+        double longitude = Math.toRadians(center.getLongitude());
+        for (int bearing = 0; bearing < 360; bearing += 10) {
+            double theta = Math.toRadians(bearing);
+            double pointLatitude = Math.asin(Math.sin(latitude)*Math.cos(angularDistance) + Math.cos(latitude)*Math.sin(angularDistance)*Math.cos(theta));
+            double pointLongitude = longitude + Math.atan2(Math.sin(theta)*Math.sin(angularDistance)*Math.cos(latitude), Math.cos(angularDistance) - Math.sin(latitude)*Math.sin(pointLatitude));
+            Location point = new Location();
+            point.setLatitude(Math.toDegrees(pointLatitude));
+            point.setLongitude(Math.toDegrees(pointLongitude));
+            assertThat(cells).contains(GeoCells.encode(point));
+        }
+    }
+}
\ No newline at end of file
@@ -17,10 +17,18 @@ package com.grayfox.server.util;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
 import org.junit.Test;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class MessagesTest {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessagesTest.class);
+
     @Test
     public void testSimpleMessage() {
         final String messageKey = "test.message";
@@ -40,6 +48,14 @@ public class MessagesTest {
         assertThat(Messages.get(messageKey, Constants.Locales.SPANISH, messageArguments)).isNotNull().isNotEmpty().isNotEqualTo(notExistingMessage).contains(messageArguments[0].toString(), messageArguments[1].toString());
     }
 
+    @Test
+    public void testMessageWithMismatchedArguments() {
+        final String messageKey = "test.message_with_number_arg";
+
+        assertThat(Messages.get(messageKey, "not a number")).isEqualTo("A message with a number argument [{0,number}]");
+        assertThat(Messages.get(messageKey, Constants.Locales.SPANISH, "not a number")).contains("{0,number}");
+    }
+
     @Test
     public void testNotExcistingMessage() {
         final String messageKey = "not.existing.message";
@@ -48,4 +64,34 @@ public class MessagesTest {
         assertThat(Messages.get(messageKey)).isNotNull().isNotEmpty().isEqualTo(notExistingMessage);
         assertThat(Messages.get(messageKey, Constants.Locales.SPANISH)).isNotNull().isNotEmpty().isEqualTo(notExistingMessage);
     }
+
+    @Test
+    public void testRecommendationReasonBenchmark() {
+        final String messageKey = "recommendation.social.reason";
+        final int rows = 100_000;
+
+        for (int i = 0; i < rows; i++) {
+            uncachedMessage(messageKey, "John Doe", "Bar");
+            Messages.get(messageKey, Constants.Locales.SPANISH, "John Doe", "Bar");
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) uncachedMessage(messageKey, "John Doe", "Bar");
+        long uncachedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rows; i++) Messages.get(messageKey, Constants.Locales.SPANISH, "John Doe", "Bar");
+        long cachedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rows; i++) Messages.get("recommendation.global.reason", Constants.Locales.SPANISH);
+        long withoutArgumentsNanos = System.nanoTime() - start;
+
+        LOGGER.info("Recommendation reason per row: uncached {} ns, cached {} ns, cached without arguments {} ns", uncachedNanos / rows, cachedNanos / rows, withoutArgumentsNanos / rows);
+        assertThat(Messages.get(messageKey, Constants.Locales.SPANISH, "John Doe", "Bar")).isEqualTo(uncachedMessage(messageKey, "John Doe", "Bar"));
+    }
+
+    private String uncachedMessage(String key, Object... messageArguments) {
+        return MessageFormat.format(ResourceBundle.getBundle("com.grayfox.server.messages", Constants.Locales.SPANISH).getString(key), messageArguments);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014-2015 Daniel Pedraza-Arcega
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.grayfox.server.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class MonitoredThreadPoolExecutorTest {
+
+    @Test(timeout = 5000)
+    public void testRejectedTasksAreDeferredAndDrained() throws Exception {
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test", 1, 1, 10L, 10, 5000L);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        executor.execute(() -> {
+            await(release);
+            completed.incrementAndGet();
+        });
+        executor.execute(completed::incrementAndGet);
+        executor.execute(completed::incrementAndGet);
+
+        assertThat(executor.getQueueDepth()).isEqualTo(1);
+        assertThat(executor.getTotalDeferredCount()).isEqualTo(1);
+        release.countDown();
+        executor.drain();
+
+        assertThat(executor.awaitTermination(0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(completed.get()).isEqualTo(3);
+        assertThat(executor.getCompletedTasks()).isEqualTo(3);
+        assertThat(executor.getDeferredCount()).isZero();
+    }
+
+    @Test
+    public void testCallerRunsWhenTooManyDeferred() {
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test", 1, 1, 60_000L, 0, 1000L);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> { });
+        Thread caller = Thread.currentThread();
+        AtomicInteger ranInCaller = new AtomicInteger();
+        executor.execute(() -> {
+            if (Thread.currentThread() == caller) ranInCaller.incrementAndGet();
+        });
+
+        assertThat(ranInCaller.get()).isEqualTo(1);
+        assertThat(executor.getTotalDeferredCount()).isZero();
+        release.countDown();
+        executor.drain();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -16,10 +16,19 @@
 package com.grayfox.server.ws.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.Response;
 
@@ -31,6 +40,7 @@ import com.grayfox.server.domain.Category;
 import com.grayfox.server.domain.Location;
 import com.grayfox.server.domain.Poi;
 import com.grayfox.server.domain.Recommendation;
+import com.grayfox.server.service.PoiService;
 import com.grayfox.server.test.BaseWebServiceTest;
 import com.grayfox.server.ws.rest.response.ApiResponse;
 import com.grayfox.server.ws.rest.response.ErrorResponse;
@@ -38,6 +48,8 @@ import com.grayfox.server.ws.rest.response.ErrorResponse;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import org.springframework.test.util.ReflectionTestUtils;
+
 public class PoiWebServiceTest extends BaseWebServiceTest {
 
     @Test
@@ -195,6 +207,54 @@ public class PoiWebServiceTest extends BaseWebServiceTest {
         assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
     }
 
+    @Test
+    public void testRadiusTooLargeWhenRequestingRecommendations() {
+        Response response = target("pois/recommend").queryParam("location", "19.04,-98.19").queryParam("radius", 2000000).request().get();
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+
+        Gson gson = new Gson();
+        ErrorResponse errorResponse = gson.fromJson(gson.fromJson(response.readEntity(String.class), JsonObject.class).get("error"), ErrorResponse.class);
+        assertThat(errorResponse).isNotNull();
+        assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("param.validation.error");
+        assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
+    }
+
+    @Test
+    public void testErrorInLimitWhenRequestingRecommendations() {
+        Response response = target("pois/recommend").queryParam("location", "19.04,-98.19").queryParam("radius", 100).queryParam("limit", 0).request().get();
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+
+        Gson gson = new Gson();
+        ErrorResponse errorResponse = gson.fromJson(gson.fromJson(response.readEntity(String.class), JsonObject.class).get("error"), ErrorResponse.class);
+        assertThat(errorResponse).isNotNull();
+        assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("param.validation.error");
+        assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
+    }
+
+    @Test
+    public void testErrorInMaxLimitWhenRequestingRecommendations() {
+        Response response = target("pois/recommend").queryParam("location", "19.04,-98.19").queryParam("radius", 100).queryParam("limit", "99999999999").request().get();
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+
+        Gson gson = new Gson();
+        ErrorResponse errorResponse = gson.fromJson(gson.fromJson(response.readEntity(String.class), JsonObject.class).get("error"), ErrorResponse.class);
+        assertThat(errorResponse).isNotNull();
+        assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("param.validation.error");
+        assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
+    }
+
+    @Test
+    public void testErrorInCursorWhenRequestingRecommendations() {
+        Response response = target("pois/recommend").queryParam("location", "19.04,-98.19").queryParam("radius", 100).queryParam("limit", 10).queryParam("cursor", "bm90LWEtY3Vyc29y").request().get();
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+
+        Gson gson = new Gson();
+        ErrorResponse errorResponse = gson.fromJson(gson.fromJson(response.readEntity(String.class), JsonObject.class).get("error"), ErrorResponse.class);
+        assertThat(errorResponse).isNotNull();
+        assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("param.validation.error");
+        assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
+    }
+
     @Test
     public void testMissingParmsWhenRequestingCategories() {
         Response response = target("pois/categories/like/ ").request().get();
@@ -206,4 +266,59 @@ public class PoiWebServiceTest extends BaseWebServiceTest {
         assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("param.validation.error");
         assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
     }
+
+    @Test
+    public void testTimeoutWhenRequestingRoute() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        PoiService poiService = mock(PoiService.class);
+        when(poiService.buildRoute(any(), any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return Collections.emptyList();
+        });
+        PoiWebService poiWebService = applicationContext.getBean(PoiWebService.class);
+        ReflectionTestUtils.setField(poiWebService, "poiService", poiService);
+        ReflectionTestUtils.setField(poiWebService, "foursquareTimeoutMillis", 200L);
+
+        Response response = target("pois/route").queryParam("poi_foursquare_id", "4c09270ea1b32d7f172297f0").request().get();
+        assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+
+        Gson gson = new Gson();
+        ErrorResponse errorResponse = gson.fromJson(gson.fromJson(response.readEntity(String.class), JsonObject.class).get("error"), ErrorResponse.class);
+        assertThat(errorResponse).isNotNull();
+        assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("foursquare.timeout.error");
+        assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testBusyWhenRequestingRoute() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService foursquareIoExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        ReflectionTestUtils.setField(applicationContext.getBean(PoiWebService.class), "foursquareIoExecutor", foursquareIoExecutor);
+        foursquareIoExecutor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            Response response = target("pois/route").queryParam("poi_foursquare_id", "4c09270ea1b32d7f172297f0").request().get();
+            assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+
+            Gson gson = new Gson();
+            ErrorResponse errorResponse = gson.fromJson(gson.fromJson(response.readEntity(String.class), JsonObject.class).get("error"), ErrorResponse.class);
+            assertThat(errorResponse).isNotNull();
+            assertThat(errorResponse.getErrorCode()).isNotNull().isNotEmpty().isEqualTo("server.busy.error");
+            assertThat(errorResponse.getErrorMessage()).isNotNull().isNotEmpty();
+        } finally {
+            release.countDown();
+            foursquareIoExecutor.shutdown();
+        }
+    }
 }
\ No newline at end of file